@@ -0,0 +1,90 @@
+package net.vanabel.vanascriptengine.benchmark;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.object.encapsulated.SetObject;
+import net.vanabel.vanascriptengine.object.encapsulated.TextObject;
+import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link net.vanabel.vanascriptengine.object.encapsulated.EncapsulatedObject.AttributeHandler#processAttribute}
+ * on {@link TextObject} and on {@link SetObject}s of various sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeDispatchBenchmark {
+
+    @State(Scope.Thread)
+    public static class TextState {
+
+        @Param({"length", "substring", "to_uppercase", "object_type"})
+        public String attribute;
+
+        TextObject text;
+        Attribute attr;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            text = new TextObject("The quick brown fox jumps over the lazy dog");
+            attr = singleComponent(attribute, "substring".equals(attribute) ? "4" : null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SetState {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        public int size;
+
+        @Param({"size", "is_empty", "object_type", "clone"})
+        public String attribute;
+
+        SetObject set;
+        Attribute attr;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            set = new SetObject(IntegerDataType.class);
+            for (int i = 0; i < size; i++) {
+                set.add(IntegerDataType.valueOf(i));
+            }
+            attr = singleComponent(attribute, null);
+        }
+    }
+
+    @Benchmark
+    public AbstractObject textAttribute(TextState state) {
+        state.attr.resetFulfilled();
+        return TextObject.ATTRIBUTE_HANDLER.processAttribute(state.text, state.attr);
+    }
+
+    @Benchmark
+    public AbstractObject setAttribute(SetState state) {
+        state.attr.resetFulfilled();
+        return SetObject.ATTRIBUTE_HANDLER.processAttribute(state.set, state.attr);
+    }
+
+    static Attribute singleComponent(String name, String rawContext) {
+        return new Attribute(new Attribute.Component[] {
+                new Attribute.Component(name, null, rawContext, Collections.emptyMap())
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package net.vanabel.vanascriptengine.benchmark;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+import net.vanabel.vanascriptengine.object.ConstructCache;
+import net.vanabel.vanascriptengine.object.ObjectRegistry;
+import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
+import net.vanabel.vanascriptengine.object.datatype.CharDataType;
+import net.vanabel.vanascriptengine.object.datatype.DataTypeObject;
+import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.object.datatype.NumberDataType;
+import net.vanabel.vanascriptengine.object.encapsulated.TextObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ObjectRegistry#constructForClass(String, Class)} and
+ * {@link ObjectRegistry#constructBestMatch(String)} for the literals of every {@link DataTypeObject}, with and without
+ * the type's construct cache (if it has one) already holding them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructBenchmark {
+
+    static final int BATCH = 1024;
+
+    @Param({"integer", "number", "char", "boolean"})
+    public String type;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private Class<? extends DataTypeObject> typeClass;
+    private String[] literals;
+    private boolean cold;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectRegistry.registerDataType(BooleanDataType.class);
+        ObjectRegistry.registerDataType(CharDataType.class);
+        ObjectRegistry.registerDataType(IntegerDataType.class);
+        ObjectRegistry.registerDataType(NumberDataType.class);
+        ObjectRegistry.registerAttributableObject(TextObject.class);
+
+        literals = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            literals[i] = literalFor(type, i);
+        }
+        switch (type) {
+            case "integer":
+                typeClass = IntegerDataType.class;
+                break;
+            case "number":
+                typeClass = NumberDataType.class;
+                break;
+            case "char":
+                typeClass = CharDataType.class;
+                break;
+            case "boolean":
+                typeClass = BooleanDataType.class;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data type: " + type);
+        }
+        for (String literal : literals) {
+            if (ObjectRegistry.constructForClass(literal, typeClass) == null) {
+                throw new IllegalStateException("\"" + literal + "\" could not be constructed as a " + type + "!");
+            }
+        }
+
+        cold = "cold".equals(cache);
+        resetCache();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetCache() {
+        ConstructCache<?> cache = ConstructCache.getFor(typeClass);
+        if (cold && cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void constructForClass(Blackhole bh) {
+        for (String literal : literals) {
+            AbstractObject obj = ObjectRegistry.constructForClass(literal, typeClass);
+            bh.consume(obj);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void constructBestMatch(Blackhole bh) {
+        for (String literal : literals) {
+            AbstractObject obj = ObjectRegistry.constructBestMatch(literal);
+            bh.consume(obj);
+        }
+    }
+
+    static String literalFor(String type, int i) {
+        switch (type) {
+            case "integer":
+                switch (i & 7) {
+                    case 0:
+                        return "0x" + Integer.toHexString(i * 31);
+                    case 1:
+                        return "0b" + Integer.toBinaryString(i);
+                    default:
+                        return Integer.toString((i & 1) == 0 ? i * 1009 : -i);
+                }
+            case "number":
+                switch (i & 3) {
+                    case 0:
+                        return Integer.toString(i);
+                    case 1:
+                        return i + ".25";
+                    case 2:
+                        return "-" + i + ".0625";
+                    default:
+                        return i + ".5e3";
+                }
+            case "char":
+                return String.valueOf((char) ('!' + i));
+            case "boolean":
+                switch (i & 3) {
+                    case 0:
+                        return "true";
+                    case 1:
+                        return "false";
+                    case 2:
+                        return "1";
+                    default:
+                        return "0";
+                }
+            default:
+                throw new IllegalArgumentException("Unknown data type: " + type);
+        }
+    }
+}
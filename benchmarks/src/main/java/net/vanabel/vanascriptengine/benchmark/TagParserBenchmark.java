@@ -0,0 +1,87 @@
+package net.vanabel.vanascriptengine.benchmark;
+
+import net.vanabel.vanascriptengine.Parser;
+import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Parser} on short and long tag strings, with and without the parse cache already holding them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TagParserBenchmark {
+
+    static final int BATCH = 1024;
+
+    @Param({"short", "long"})
+    public String length;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private String[] tags;
+    private boolean cold;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String base = "long".equals(length) ? longTag() : "text.length";
+        tags = new String[BATCH];
+        // Every string in a batch is distinct so that cold runs miss the cache on every call
+        for (int i = 0; i < BATCH; i++) {
+            tags[i] = base + ".n" + i;
+        }
+        cold = "cold".equals(cache);
+        Parser.clearCache();
+        if (!cold) {
+            for (String tag : tags) {
+                Parser.getComponentsFromAttributeString(tag);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetCache() {
+        if (cold) {
+            Parser.clearCache();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void parseTagString(Blackhole bh) {
+        for (String tag : tags) {
+            Attribute.Component[] comps = Parser.getComponentsFromAttributeString(tag);
+            bh.consume(comps);
+        }
+    }
+
+    private static String longTag() {
+        StringBuilder sb = new StringBuilder("set(\"alpha\";'beta';gamma)");
+        for (int i = 0; i < 24; i++) {
+            sb.append(".attribute_").append(i);
+            if (i % 3 == 0) {
+                sb.append("(start=").append(i).append(";end=\"").append(i * 7).append("\")");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,366 @@
+package net.vanabel.vanascriptengine.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks every class that declares an object annotation and generates an ObjectTypeIndex listing them, along with the
+ * service file that lets ObjectRegistry.registerIndexedTypes() find it. The index refers to the annotated methods and
+ * handler fields directly, so registering the types needs no reflection.
+ * <p>
+ * A class that declares any of the annotations must be public and extend AbstractObject, and must declare exactly one
+ * public static ObjectConstructor method taking a String and returning the class, and exactly one public static
+ * ObjectMatcher method taking a String and returning a boolean. Cache clearers must be public static, take a long and
+ * return an int or nothing. Attributable and Modifiable classes must declare a public static ATTRIBUTE_HANDLER or
+ * MODIFIER_HANDLER field. Anything else is a compile error.
+ * <p>
+ * The index is generated as GeneratedObjectTypeIndex in the package of the first annotated class, unless the
+ * {@value #INDEX_CLASS_OPTION} option names another class. Modules that end up in the same class loader must not
+ * generate the same index class.
+ */
+public final class ObjectIndexProcessor extends AbstractProcessor {
+
+    public final static String INDEX_CLASS_OPTION = "vanascriptengine.indexClass";
+
+    private final static String DEFAULT_INDEX_NAME = "GeneratedObjectTypeIndex";
+
+    private final static String ANNOTATION_PACKAGE = "net.vanabel.vanascriptengine.object.annotation.";
+    private final static String CONSTRUCTOR = ANNOTATION_PACKAGE + "ObjectConstructor";
+    private final static String MATCHER = ANNOTATION_PACKAGE + "ObjectMatcher";
+    private final static String CACHE_CLEARER = ANNOTATION_PACKAGE + "ObjectCacheClearer";
+
+    private final static String ABSTRACT_OBJECT = "net.vanabel.vanascriptengine.object.AbstractObject";
+    private final static String ATTRIBUTABLE = "net.vanabel.vanascriptengine.tag.attribute.Attributable";
+    private final static String MODIFIABLE = "net.vanabel.vanascriptengine.modifier.Modifiable";
+    private final static String ATTRIBUTE_HANDLER = "net.vanabel.vanascriptengine.tag.attribute.Attribute.Handler";
+    private final static String MODIFIER_HANDLER = "net.vanabel.vanascriptengine.modifier.Modifier.Handler";
+    private final static String INDEX_INTERFACE = "net.vanabel.vanascriptengine.object.ObjectTypeIndex";
+    private final static String TYPE_BINDING = "net.vanabel.vanascriptengine.object.TypeBinding";
+
+    private final static String ATTRIBUTE_HANDLER_FIELD_NAME = "ATTRIBUTE_HANDLER";
+    private final static String MODIFIER_HANDLER_FIELD_NAME = "MODIFIER_HANDLER";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private Filer filer;
+
+    private final Map<TypeElement, AnnotatedType> found = new LinkedHashMap<>();
+    private boolean written = false;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+        filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(CONSTRUCTOR, MATCHER, CACHE_CLEARER));
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return new HashSet<>(Arrays.asList(INDEX_CLASS_OPTION));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+        List<AnnotatedType> newTypes = new ArrayList<>();
+        collect(roundEnv, CONSTRUCTOR, newTypes);
+        collect(roundEnv, MATCHER, newTypes);
+        collect(roundEnv, CACHE_CLEARER, newTypes);
+        if (newTypes.isEmpty()) {
+            return false;
+        }
+        if (written) {
+            for (AnnotatedType type : newTypes) {
+                error(type.element, "Object types generated by other annotation processors cannot be added to the " +
+                        "already generated object type index!");
+            }
+            return false;
+        }
+
+        boolean valid = true;
+        for (AnnotatedType type : found.values()) {
+            valid &= validate(type);
+        }
+        if (valid) {
+            write();
+        }
+        written = true;
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Collecting and validating
+
+    private final static class AnnotatedType {
+        final TypeElement element;
+        final List<ExecutableElement> constructors = new ArrayList<>(1);
+        final List<ExecutableElement> matchers = new ArrayList<>(1);
+        final List<ExecutableElement> clearers = new ArrayList<>(1);
+        boolean attributable, modifiable;
+
+        AnnotatedType(TypeElement element) {
+            this.element = element;
+        }
+    }
+
+    private void collect(RoundEnvironment roundEnv, String annotationName, List<AnnotatedType> newTypes) {
+        TypeElement annotation = elements.getTypeElement(annotationName);
+        if (annotation == null) {
+            return;
+        }
+        for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (e.getKind() != ElementKind.METHOD || !(e.getEnclosingElement() instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement owner = (TypeElement) e.getEnclosingElement();
+            AnnotatedType type = found.get(owner);
+            if (type == null) {
+                type = new AnnotatedType(owner);
+                found.put(owner, type);
+                newTypes.add(type);
+            }
+            ExecutableElement method = (ExecutableElement) e;
+            if (annotationName.equals(CONSTRUCTOR)) {
+                type.constructors.add(method);
+            }
+            else if (annotationName.equals(MATCHER)) {
+                type.matchers.add(method);
+            }
+            else {
+                type.clearers.add(method);
+            }
+        }
+    }
+
+    private boolean validate(AnnotatedType type) {
+        TypeElement owner = type.element;
+        String name = owner.getQualifiedName().toString();
+        boolean valid = true;
+
+        if (!isSubtype(owner.asType(), ABSTRACT_OBJECT)) {
+            return error(owner, name + " declares object annotations but does not extend AbstractObject!");
+        }
+        if (!isAccessible(owner)) {
+            valid = error(owner, "The object type " + name + " must be public and, if nested, static!");
+        }
+        type.attributable = isSubtype(owner.asType(), ATTRIBUTABLE);
+        type.modifiable = isSubtype(owner.asType(), MODIFIABLE);
+
+        if (type.constructors.size() != 1) {
+            valid = error(owner, "The object type " + name + " must declare exactly one method annotated with " +
+                    "ObjectConstructor, but declares " + type.constructors.size() + "!");
+        }
+        if (type.matchers.size() != 1) {
+            valid = error(owner, "The object type " + name + " must declare exactly one method annotated with " +
+                    "ObjectMatcher, but declares " + type.matchers.size() + "!");
+        }
+        for (ExecutableElement m : type.constructors) {
+            valid &= checkMethod(m, "ObjectConstructor", "java.lang.String",
+                    types.isSameType(types.erasure(m.getReturnType()), types.erasure(owner.asType())),
+                    "return " + owner.getSimpleName());
+        }
+        for (ExecutableElement m : type.matchers) {
+            valid &= checkMethod(m, "ObjectMatcher", "java.lang.String",
+                    m.getReturnType().getKind() == TypeKind.BOOLEAN, "return a boolean");
+        }
+        for (ExecutableElement m : type.clearers) {
+            TypeKind returned = m.getReturnType().getKind();
+            valid &= checkMethod(m, "ObjectCacheClearer", "long",
+                    returned == TypeKind.INT || returned == TypeKind.VOID, "return an int or nothing");
+        }
+        if (type.attributable) {
+            valid &= checkHandlerField(owner, ATTRIBUTE_HANDLER_FIELD_NAME, ATTRIBUTE_HANDLER, "Attributable");
+        }
+        if (type.modifiable) {
+            valid &= checkHandlerField(owner, MODIFIER_HANDLER_FIELD_NAME, MODIFIER_HANDLER, "Modifiable");
+        }
+        return valid;
+    }
+
+    private boolean checkMethod(ExecutableElement m, String annotation, String parameterType, boolean returnsCorrectly,
+                                String expectedReturn) {
+        boolean valid = true;
+        Set<Modifier> modifiers = m.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || !modifiers.contains(Modifier.STATIC)) {
+            valid = error(m, "Methods annotated with " + annotation + " must be public and static!");
+        }
+        List<? extends VariableElement> parameters = m.getParameters();
+        if (parameters.size() != 1 || !types.erasure(parameters.get(0).asType()).toString().equals(parameterType)) {
+            valid = error(m, "Methods annotated with " + annotation + " must take a single " + parameterType + "!");
+        }
+        if (!returnsCorrectly) {
+            valid = error(m, "Methods annotated with " + annotation + " must " + expectedReturn + "!");
+        }
+        return valid;
+    }
+
+    private boolean checkHandlerField(TypeElement owner, String fieldName, String handlerType, String kind) {
+        for (VariableElement field : ElementFilter.fieldsIn(owner.getEnclosedElements())) {
+            if (!field.getSimpleName().contentEquals(fieldName)) {
+                continue;
+            }
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || !modifiers.contains(Modifier.STATIC) ||
+                    !isSubtype(field.asType(), handlerType)) {
+                return error(field, "The field " + fieldName + " must be public, static and hold a " +
+                        handlerType + "!");
+            }
+            return true;
+        }
+        return error(owner, kind + " object type " + owner.getQualifiedName() + " must declare a public static field " +
+                fieldName + "!");
+    }
+
+    private boolean isSubtype(TypeMirror type, String superTypeName) {
+        TypeElement superType = elements.getTypeElement(superTypeName);
+        return superType != null && types.isSubtype(types.erasure(type), types.erasure(superType.asType()));
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement t = (TypeElement) e;
+            if (!t.getModifiers().contains(Modifier.PUBLIC) ||
+                    (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) ||
+                    t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean error(Element e, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, e);
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Generating the index
+
+    private String indexClassName() {
+        String option = processingEnv.getOptions().get(INDEX_CLASS_OPTION);
+        if (option != null && !option.trim().isEmpty()) {
+            return option.trim();
+        }
+        PackageElement pkg = elements.getPackageOf(found.keySet().iterator().next());
+        return pkg.isUnnamed() ? DEFAULT_INDEX_NAME : pkg.getQualifiedName() + "." + DEFAULT_INDEX_NAME;
+    }
+
+    private void write() {
+        String indexName = indexClassName();
+        int dot = indexName.lastIndexOf('.');
+        Element[] originating = found.keySet().toArray(new Element[0]);
+        try {
+            JavaFileObject source = filer.createSourceFile(indexName, originating);
+            try (Writer w = source.openWriter()) {
+                if (dot > 0) {
+                    w.write("package " + indexName.substring(0, dot) + ";\n\n");
+                }
+                w.write("/**\n * Generated by " + getClass().getName() + ". Do not edit.\n */\n");
+                w.write("public final class " + indexName.substring(dot + 1) + " implements " + INDEX_INTERFACE +
+                        " {\n\n");
+                w.write("    @Override\n");
+                w.write("    public java.util.Collection<" + TYPE_BINDING + "<?>> getBindings() {\n");
+                w.write("        java.util.List<" + TYPE_BINDING + "<?>> bindings = new java.util.ArrayList<>(" +
+                        found.size() + ");\n");
+                for (AnnotatedType type : found.values()) {
+                    writeBinding(w, type);
+                }
+                w.write("        return bindings;\n    }\n}\n");
+            }
+            try (Writer w = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + INDEX_INTERFACE, originating).openWriter()) {
+                w.write(indexName + "\n");
+            }
+        }
+        catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Could not write the object type index " + indexName + ": " +
+                    e.getMessage());
+        }
+    }
+
+    private void writeBinding(Writer w, AnnotatedType type) throws IOException {
+        String owner = type.element.getQualifiedName().toString();
+        ExecutableElement matcher = type.matchers.get(0);
+        Map<String, Object> matcherValues = annotationValues(matcher, MATCHER);
+
+        w.write("        bindings.add(" + TYPE_BINDING + ".builder(" + owner + ".class, " + owner + "::" +
+                type.constructors.get(0).getSimpleName() + ", " + owner + "::" + matcher.getSimpleName() + ")\n");
+        w.write("                .matcher(" + matcherValues.get("priority") + ", " + matcherValues.get("chars") + ", " +
+                matcherValues.get("minLength") + ", " + matcherValues.get("maxLength") + ")\n");
+        if (type.attributable) {
+            w.write("                .attributeHandler(" + owner + "." + ATTRIBUTE_HANDLER_FIELD_NAME + ")\n");
+        }
+        if (type.modifiable) {
+            w.write("                .modifierHandler(" + owner + "." + MODIFIER_HANDLER_FIELD_NAME + ")\n");
+        }
+        for (ExecutableElement clearer : type.clearers) {
+            Map<String, Object> clearerValues = annotationValues(clearer, CACHE_CLEARER);
+            String method = clearer.getReturnType().getKind() == TypeKind.INT ? "countingCacheClearer" : "cacheClearer";
+            w.write("                ." + method + "(\"" + clearer.getSimpleName() + "\", " + owner + "::" +
+                    clearer.getSimpleName() + ", " + clearerValues.get("clearDelay") + "L, " +
+                    clearerValues.get("customCheckDelay") + "L)\n");
+        }
+        w.write("                .build());\n");
+    }
+
+    private Map<String, Object> annotationValues(ExecutableElement method, String annotationName) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotation.getQualifiedName().contentEquals(annotationName)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                    elements.getElementValuesWithDefaults(mirror).entrySet()) {
+                values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+            }
+        }
+        return values;
+    }
+}
@@ -4,12 +4,14 @@ import net.vanabel.vanascriptengine.object.AbstractObject;
 import net.vanabel.vanascriptengine.tag.attribute.Attribute;
 import net.vanabel.vanascriptengine.tag.base.AbstractTagBase;
 import net.vanabel.vanascriptengine.util.DuoNode;
+import net.vanabel.vanascriptengine.util.cache.BoundedCache;
+import net.vanabel.vanascriptengine.util.cache.CacheStats;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-public final class TagParser {
+public final class Parser {
 
     public static AbstractTagBase getTagBaseFromAttributeString(String str) {
         return parseTagString(str).getLeft();
@@ -21,7 +23,49 @@ public final class TagParser {
 
 
 
-    private final static Map<String, DuoNode<AbstractTagBase, Attribute.Component[]>> COMPONENTS_CACHE = new HashMap<>();
+    /**
+     * The default maximum of the estimated memory held by parsed tag strings, in bytes.
+     */
+    public final static long DEFAULT_CACHE_BYTES = 8L * 1024 * 1024;
+
+    private static volatile BoundedCache<String, DuoNode<AbstractTagBase, Attribute.Component[]>> componentsCache =
+            new BoundedCache<>(DEFAULT_CACHE_BYTES, Parser::estimateBytes);
+
+    /**
+     * Replaces the parse cache with an empty one that holds at most the given number of tag strings.
+     */
+    public static void setCacheMaximumSize(long entries) {
+        componentsCache = new BoundedCache<>(entries);
+    }
+
+    /**
+     * Replaces the parse cache with an empty one whose entries are estimated to hold at most the given number of bytes.
+     */
+    public static void setCacheMaximumBytes(long bytes) {
+        componentsCache = new BoundedCache<>(bytes, Parser::estimateBytes);
+    }
+
+    public static void clearCache() {
+        componentsCache.clear();
+    }
+
+    public static CacheStats getCacheStats() {
+        return componentsCache.stats();
+    }
+
+    /**
+     * Roughly estimates the retained size of a parsed tag string: the key, the node and its component array, and every
+     * component with its context.
+     */
+    private static int estimateBytes(String str, DuoNode<AbstractTagBase, Attribute.Component[]> node) {
+        Attribute.Component[] comps = node.getRight();
+        long bytes = 40 + 2L * str.length() + 24 + 48 + 16 + 4L * comps.length;
+        for (Attribute.Component comp : comps) {
+            String raw = comp.getContext().getRaw();
+            bytes += 112 + 2L * comp.getName().length() + (raw == null ? 0 : 2L * raw.length());
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
 
     private static void throwIllegalArgumentForSyntax(String atr, int index, String msg) {
         throw new IllegalArgumentException("Invalid syntax in the attribute string \"" + atr + "\" at index " + index +
@@ -32,11 +76,10 @@ public final class TagParser {
         if (str == null || str.isEmpty()) {
             throw new IllegalArgumentException("Attribute string cannot be empty or null!");
         }
-        DuoNode<AbstractTagBase, Attribute.Component[]> node = COMPONENTS_CACHE.get(str);
-        if (node != null) {
-            return node;
-        }
+        return componentsCache.get(str, Parser::parseUncached);
+    }
 
+    private static DuoNode<AbstractTagBase, Attribute.Component[]> parseUncached(String str) {
         AbstractTagBase finalBase = null;
         ArrayList<Attribute.Component> compList = new ArrayList<>(64);
         int start = 0, end = -1, parens = 0;
@@ -144,8 +187,6 @@ public final class TagParser {
         }
 
         compList.trimToSize();
-        node = new DuoNode<>(finalBase, compList.toArray(new Attribute.Component[0]));
-        COMPONENTS_CACHE.put(str, node);
-        return node;
+        return new DuoNode<>(finalBase, compList.toArray(new Attribute.Component[0]));
     }
 }
@@ -1,20 +1,25 @@
 package net.vanabel.vanascriptengine.modifier;
 
+import net.vanabel.vanascriptengine.util.SymbolTable;
 import net.vanabel.vanascriptengine.util.conversion.StringUtils;
 import net.vanabel.vanascriptengine.util.validator.ObjectValidator;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 public class Modifier {
 
     private final String name;
+    private final int symbol;
     private final String unprocessedValue;
     // TODO: Context
 
     public Modifier(String name, String value) {
         this.name = name;
+        this.symbol = name == null ? SymbolTable.UNKNOWN : SymbolTable.intern(name);
         this.unprocessedValue = StringUtils.emptyAsNull(value);
     }
 
@@ -22,6 +27,13 @@ public class Modifier {
         return name;
     }
 
+    /**
+     * Returns the id of this modifier's name in the {@link SymbolTable}.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     public boolean hasValue() {
         return unprocessedValue != null;
     }
@@ -40,9 +52,127 @@ public class Modifier {
         boolean process(T object, Modifier modifier);
     }
 
+    /**
+     * A processor added to a modifier by {@link Handler#extendModifiers(Processor, int, boolean, String...)}.
+     */
+    public static final class Extension<T extends Modifiable> {
+        private final Processor<T> processor;
+        private final int priority;
+        private final boolean terminal;
+
+        private Extension(Processor<T> processor, int priority, boolean terminal) {
+            this.processor = processor;
+            this.priority = priority;
+            this.terminal = terminal;
+        }
+
+        public Processor<T> getProcessor() {
+            return processor;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Returns whether this extension failing to process a modifier ends processing.
+         */
+        public boolean isTerminal() {
+            return terminal;
+        }
+    }
+
+    /**
+     * The extensions of a modifier in the order they are tried, flattened into arrays together with the registered
+     * processor, so that processing is a single loop instead of a nesting of processors. The registered processor is
+     * null until one is registered.
+     */
+    private static final class Chain<T extends Modifiable> implements Processor<T> {
+        final Processor<T> base;
+        final Extension<T>[] extensions;
+        final Processor<T>[] flat;
+        final boolean[] terminal;
+
+        Chain(Processor<T> base, Extension<T>[] extensions) {
+            this.base = base;
+            this.extensions = extensions;
+            int length = extensions.length + (base == null ? 0 : 1);
+            this.flat = Handler.newProcessorArray(length);
+            this.terminal = new boolean[length];
+            for (int i = 0; i < extensions.length; i++) {
+                flat[i] = extensions[i].processor;
+                terminal[i] = extensions[i].terminal;
+            }
+            if (base != null) {
+                flat[extensions.length] = base;
+            }
+        }
+
+        @Override
+        public boolean process(T object, Modifier modifier) {
+            for (int i = 0; i < flat.length; i++) {
+                if (flat[i].process(object, modifier)) {
+                    return true;
+                }
+                if (terminal[i]) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T extends Modifiable> Extension<T>[] newExtensionArray(int length) {
+            return (Extension<T>[]) new Extension[length];
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T extends Modifiable> Processor<T> with(Processor<T> current, Extension<T> extension) {
+            Processor<T> base = current instanceof Chain ? ((Chain<T>) current).base : current;
+            Extension<T>[] extensions = current instanceof Chain ? ((Chain<T>) current).extensions : newExtensionArray(0);
+            int index = 0;
+            while (index < extensions.length && extensions[index].priority > extension.priority) {
+                index++;
+            }
+            Extension<T>[] updated = newExtensionArray(extensions.length + 1);
+            System.arraycopy(extensions, 0, updated, 0, index);
+            updated[index] = extension;
+            System.arraycopy(extensions, index, updated, index + 1, extensions.length - index);
+            return new Chain<>(base, updated);
+        }
+
+        /**
+         * Returns the processor without the extension, or the same processor if it does not have the extension.
+         */
+        @SuppressWarnings("unchecked")
+        static <T extends Modifiable> Processor<T> without(Processor<T> current, Extension<T> extension) {
+            if (!(current instanceof Chain)) {
+                return current;
+            }
+            Chain<T> chain = (Chain<T>) current;
+            for (int i = 0; i < chain.extensions.length; i++) {
+                if (chain.extensions[i] == extension) {
+                    if (chain.extensions.length == 1) {
+                        return chain.base;
+                    }
+                    Extension<T>[] updated = newExtensionArray(chain.extensions.length - 1);
+                    System.arraycopy(chain.extensions, 0, updated, 0, i);
+                    System.arraycopy(chain.extensions, i + 1, updated, i, updated.length - i);
+                    return new Chain<>(chain.base, updated);
+                }
+            }
+            return current;
+        }
+    }
+
     public abstract static class Handler<T extends Modifiable> {
 
-        protected final Map<String, Processor<T>> modifiers = new HashMap<>();
+        // Indexed by symbol id (see SymbolTable); replaced as a whole whenever processors change
+        private volatile Processor<T>[] processors = newProcessorArray(0);
+        private volatile Set<String> modifierNames = Collections.emptySet();
+
+        // Incremented whenever the processors change
+        private volatile int version = 0;
 
         private static void checkForNames(String... n) {
             if (n.length == 0) {
@@ -50,48 +180,148 @@ public class Modifier {
             }
         }
 
-        public void registerModifiers(Processor<T> processor, String... names) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T extends Modifiable> Processor<T>[] newProcessorArray(int length) {
+            return (Processor<T>[]) new Processor[length];
+        }
+
+        private void setProcessors(Processor<T>[] updated) {
+            Set<String> names = new LinkedHashSet<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != null) {
+                    names.add(SymbolTable.nameOf(i));
+                }
+            }
+            processors = updated;
+            modifierNames = Collections.unmodifiableSet(names);
+            version++;
+        }
+
+        private Processor<T>[] copyForSymbols(String[] names) {
+            int max = processors.length;
+            for (String name : names) {
+                max = Math.max(max, SymbolTable.intern(name) + 1);
+            }
+            return Arrays.copyOf(processors, max);
+        }
+
+        @SuppressWarnings("unchecked")
+        public synchronized void registerModifiers(Processor<T> processor, String... names) {
             ObjectValidator.objectIsNonNull(processor, "A modifier processor must be provided!");
             names = StringUtils.enforceValidNames(names);
             checkForNames(names);
 
+            Processor<T>[] updated = copyForSymbols(names);
             for (String name : names) {
-                if (modifiers.containsKey(name)) {
+                int symbol = SymbolTable.idOf(name);
+                Processor<T> current = updated[symbol];
+                if (current instanceof Chain && ((Chain<T>) current).base == null) {
+                    // Only extensions were here, so they now extend this processor
+                    updated[symbol] = new Chain<>(processor, ((Chain<T>) current).extensions);
+                    continue;
+                }
+                if (current != null) {
                     // TODO: Debug
                     continue;
                 }
-                modifiers.put(name, processor);
+                updated[symbol] = processor;
             }
+            setProcessors(updated);
+        }
+
+        public Extension<T> extendModifiers(Processor<T> processor, String... names) {
+            return extendModifiers(processor, 0, false, names);
         }
 
-        public void extendModifiers(Processor<T> processor, String... names) {
+        /**
+         * Adds a processor in front of the processor registered under each name. When a modifier is processed, its
+         * extensions are tried from the highest priority to the lowest, the most recently added first among equal
+         * priorities, followed by the registered processor, until one of them processes it. If nothing is registered
+         * under a name yet, the extensions are tried alone, and a processor registered later is tried after them.
+         * @param terminal Whether this processor failing to process a modifier ends processing instead of falling
+         *                 back to the processors after it.
+         * @return The extension, which can be passed to {@link #removeExtension(Extension)}.
+         */
+        public synchronized Extension<T> extendModifiers(Processor<T> processor, int priority, boolean terminal,
+                                                         String... names) {
             ObjectValidator.objectIsNonNull(processor, "A modifier processor must be provided!");
             names = StringUtils.enforceValidNames(names);
             checkForNames(names);
 
+            Extension<T> extension = new Extension<>(processor, priority, terminal);
+            Processor<T>[] updated = copyForSymbols(names);
             for (String name : names) {
-                Processor<T> oldP = modifiers.get(name);
-                if (oldP == null) {
-                    registerModifiers(processor, name);
-                    continue;
+                int symbol = SymbolTable.idOf(name);
+                updated[symbol] = Chain.with(updated[symbol], extension);
+            }
+            setProcessors(updated);
+            return extension;
+        }
+
+        /**
+         * Removes an extension from every name it extends, leaving the other extensions in place.
+         * @return Whether the extension was found.
+         */
+        public synchronized boolean removeExtension(Extension<T> extension) {
+            Processor<T>[] current = processors;
+            Processor<T>[] updated = null;
+            for (int i = 0; i < current.length; i++) {
+                Processor<T> without = Chain.without(current[i], extension);
+                if (without != current[i]) {
+                    if (updated == null) {
+                        updated = current.clone();
+                    }
+                    updated[i] = without;
                 }
-                modifiers.replace(name, (object, modifier) -> {
-                    boolean isProcessed = processor.process(object, modifier);
-                    return isProcessed || oldP.process(object, modifier);
-                });
             }
+            if (updated == null) {
+                return false;
+            }
+            setProcessors(updated);
+            return true;
+        }
+
+        /**
+         * Returns the extensions of a modifier in the order they are tried, not including its registered processor.
+         */
+        public List<Extension<T>> getExtensions(String name) {
+            Processor<T> processor = getProcessorForModifier(name);
+            return processor instanceof Chain ?
+                    Collections.unmodifiableList(Arrays.asList(((Chain<T>) processor).extensions)) :
+                    Collections.emptyList();
         }
 
         public boolean hasModifier(String name) {
-            return modifiers.containsKey(name);
+            return getProcessorForModifier(name) != null;
         }
 
+        /**
+         * Returns a number that changes whenever the processors of this handler change, for caching results derived
+         * from the handler.
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the names of all registered modifiers, in the order they were first interned. The set is immutable
+         * and only replaced when the modifiers change.
+         */
         public Set<String> getModifiers() {
-            return modifiers.keySet();
+            return modifierNames;
         }
 
         public Processor<T> getProcessorForModifier(String name) {
-            return modifiers.get(name);
+            return getProcessorForModifier(SymbolTable.idOf(name));
+        }
+
+        /**
+         * Returns the processor registered under a symbol id, or null if there is none.
+         * @see Modifier#getSymbol()
+         */
+        public Processor<T> getProcessorForModifier(int symbol) {
+            Processor<T>[] current = processors;
+            return symbol >= 0 && symbol < current.length ? current[symbol] : null;
         }
 
         public abstract boolean processModifier(T object, Modifier modifier);
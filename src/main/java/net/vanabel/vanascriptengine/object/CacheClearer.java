@@ -0,0 +1,143 @@
+package net.vanabel.vanascriptengine.object;
+
+import net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A static {@link ObjectCacheClearer} method, bound once to a direct invoker so that calling it needs no reflection.
+ */
+public final class CacheClearer {
+
+    /**
+     * The result of a clearer that does not report how many entries it removed.
+     */
+    public final static int UNKNOWN_REMOVED = -1;
+
+    @FunctionalInterface
+    interface CountingMethod {
+        int clear(long delay);
+    }
+
+    @FunctionalInterface
+    interface VoidMethod {
+        void clear(long delay);
+    }
+
+    /**
+     * Binds a method annotated with {@link ObjectCacheClearer}.
+     * @throws IllegalStateException if the method is not static or does not take a single long.
+     */
+    static CacheClearer bind(Class<? extends AbstractObject> type, Method m) throws IllegalStateException {
+        ObjectCacheClearer annotation = m.getAnnotation(ObjectCacheClearer.class);
+        if (annotation == null || !Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 1 ||
+                m.getParameterTypes()[0] != long.class) {
+            throw new IllegalStateException("The cache clearer " + type.getName() + "." + m.getName() + " must be a " +
+                    "static method annotated with ObjectCacheClearer that takes a single long!");
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CountingMethod invoker;
+            if (m.getReturnType() == int.class) {
+                MethodType methodType = MethodType.methodType(int.class, long.class);
+                CallSite site = LambdaMetafactory.metafactory(
+                        lookup,
+                        "clear",
+                        MethodType.methodType(CountingMethod.class),
+                        methodType,
+                        lookup.unreflect(m),
+                        methodType
+                );
+                invoker = (CountingMethod) site.getTarget().invoke();
+            }
+            else {
+                MethodType methodType = MethodType.methodType(void.class, long.class);
+                CallSite site = LambdaMetafactory.metafactory(
+                        lookup,
+                        "clear",
+                        MethodType.methodType(VoidMethod.class),
+                        methodType,
+                        lookup.unreflect(m),
+                        methodType
+                );
+                VoidMethod voidInvoker = (VoidMethod) site.getTarget().invoke();
+                invoker = delay -> {
+                    voidInvoker.clear(delay);
+                    return UNKNOWN_REMOVED;
+                };
+            }
+            return new CacheClearer(type, m.getName(), annotation.clearDelay(), annotation.customCheckDelay(), invoker);
+        }
+        catch (Throwable t) {
+            throw new IllegalStateException("Could not bind the cache clearer " + type.getName() + "." + m.getName() +
+                    "!", t);
+        }
+    }
+
+    /**
+     * Creates a clearer from an invoker that was bound without reflection, as by a {@link TypeBinding}.
+     */
+    static CacheClearer of(Class<? extends AbstractObject> type, String name, long clearDelay, long checkDelay,
+                           CountingMethod invoker) {
+        return new CacheClearer(type, name, clearDelay, checkDelay, invoker);
+    }
+
+    private final Class<? extends AbstractObject> type;
+    private final String name;
+    private final long clearDelay, checkDelay;
+    private final CountingMethod invoker;
+
+    private CacheClearer(Class<? extends AbstractObject> type, String name, long clearDelay, long checkDelay,
+                         CountingMethod invoker) {
+        this.type = type;
+        this.name = name;
+        this.clearDelay = clearDelay;
+        this.checkDelay = checkDelay;
+        this.invoker = invoker;
+    }
+
+    public Class<? extends AbstractObject> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the bound method.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getClearDelay() {
+        return clearDelay;
+    }
+
+    public long getCheckDelay() {
+        return checkDelay;
+    }
+
+    /**
+     * Clears entries that have been unused for longer than the declared {@link ObjectCacheClearer#clearDelay()}.
+     * @return The number of removed entries, or {@link #UNKNOWN_REMOVED}.
+     */
+    public int clear() {
+        return invoker.clear(clearDelay);
+    }
+
+    /**
+     * Clears entries that have been unused for longer than the given delay.
+     * @return The number of removed entries, or {@link #UNKNOWN_REMOVED}.
+     */
+    public int clear(long delay) {
+        return invoker.clear(delay);
+    }
+
+    @Override
+    public String toString() {
+        return type.getSimpleName() + "." + name;
+    }
+}
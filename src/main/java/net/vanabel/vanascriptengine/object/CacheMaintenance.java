@@ -0,0 +1,172 @@
+package net.vanabel.vanascriptengine.object;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs every {@link CacheClearer} known to the {@link ObjectRegistry} in the background, each on its own
+ * {@link net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer#customCheckDelay() customCheckDelay}.
+ * The first sweep of each clearer starts at a random point within its period, so that clearers sharing a period do not
+ * all run on the same tick. Sweeps run on a single daemon thread and never keep the JVM alive.
+ */
+public final class CacheMaintenance {
+
+    /**
+     * Describes a single sweep of a {@link CacheClearer}.
+     */
+    public static final class SweepReport {
+
+        private final CacheClearer clearer;
+        private final long startedAt, durationNanos;
+        private final int removed;
+        private final Throwable failure;
+
+        SweepReport(CacheClearer clearer, long startedAt, long durationNanos, int removed, Throwable failure) {
+            this.clearer = clearer;
+            this.startedAt = startedAt;
+            this.durationNanos = durationNanos;
+            this.removed = removed;
+            this.failure = failure;
+        }
+
+        public CacheClearer getClearer() {
+            return clearer;
+        }
+
+        /**
+         * Returns the time the sweep started, in milliseconds since the epoch.
+         */
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * Returns the number of removed entries, or {@link CacheClearer#UNKNOWN_REMOVED} if the clearer does not report
+         * it or failed.
+         */
+        public int getRemoved() {
+            return removed;
+        }
+
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Sweep of " + clearer + " took " + (durationNanos / 1000) + "us and removed " +
+                    (removed == CacheClearer.UNKNOWN_REMOVED ? "an unknown number of" : String.valueOf(removed)) +
+                    " entries" + (failure == null ? "" : " before failing: " + failure);
+        }
+    }
+
+    private final static Map<CacheClearer, SweepReport> LATEST_REPORTS = new ConcurrentHashMap<>();
+    private static volatile Consumer<SweepReport> reportListener = null;
+    private static ScheduledThreadPoolExecutor executor = null;
+
+    /**
+     * Starts sweeping every clearer registered so far, as well as every clearer registered later.
+     * Does nothing if maintenance is already running.
+     */
+    public static synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "VanaScriptEngine-CacheMaintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        for (CacheClearer clearer : ObjectRegistry.getCacheClearers()) {
+            schedule(clearer);
+        }
+    }
+
+    /**
+     * Stops all sweeps. A sweep that is already running is allowed to finish.
+     */
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    public static synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Sets a listener that receives the report of every sweep, on the maintenance thread. Use null to remove it.
+     */
+    public static void setReportListener(Consumer<SweepReport> listener) {
+        reportListener = listener;
+    }
+
+    /**
+     * Returns the report of the latest sweep of every clearer that has been swept at least once.
+     */
+    public static Collection<SweepReport> getLatestReports() {
+        return Collections.unmodifiableCollection(LATEST_REPORTS.values());
+    }
+
+    /**
+     * Sweeps a clearer right away on the calling thread, and reports it like a scheduled sweep.
+     */
+    public static SweepReport sweep(CacheClearer clearer) {
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        int removed = CacheClearer.UNKNOWN_REMOVED;
+        Throwable failure = null;
+        try {
+            removed = clearer.clear();
+        }
+        catch (Throwable t) {
+            failure = t;
+        }
+        SweepReport report = new SweepReport(clearer, startedAt, System.nanoTime() - start, removed, failure);
+        LATEST_REPORTS.put(clearer, report);
+        Consumer<SweepReport> listener = reportListener;
+        if (listener != null) {
+            try {
+                listener.accept(report);
+            }
+            catch (RuntimeException e) {
+                // A faulty listener must not cancel future sweeps
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Called by the {@link ObjectRegistry} whenever it binds a new clearer.
+     */
+    static synchronized void onClearerBound(CacheClearer clearer) {
+        if (executor != null) {
+            schedule(clearer);
+        }
+    }
+
+    private static void schedule(CacheClearer clearer) {
+        long period = Math.max(1, clearer.getCheckDelay());
+        long initialDelay = ThreadLocalRandom.current().nextLong(period);
+        executor.scheduleWithFixedDelay(() -> sweep(clearer), initialDelay, period, TimeUnit.MILLISECONDS);
+    }
+
+    private CacheMaintenance() {}
+}
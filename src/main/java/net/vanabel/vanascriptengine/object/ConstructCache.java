@@ -0,0 +1,227 @@
+package net.vanabel.vanascriptengine.object;
+
+import net.vanabel.vanascriptengine.util.cache.CoarseClock;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache of objects constructed from Strings, meant to back an
+ * {@link net.vanabel.vanascriptengine.object.annotation.ObjectConstructor ObjectConstructor}. Entries expire once they
+ * have not been requested for a while (see {@link #expire(long)}) or once the cache grows past its maximum size.
+ * <p>
+ * Cache hits stamp their entry with the {@link CoarseClock} instead of the system clock. Entries are kept in a FIFO
+ * queue; sweeps walk it from the oldest entry, removing idle ones and re-queueing ones that were requested since they
+ * were queued. Every re-queue is paid for by an earlier hit, so sweeping costs O(1) amortized per operation. An entry
+ * is removed by the first sweep that happens between {@code idleMillis} and twice {@code idleMillis} after its last
+ * request.
+ * <p>
+ * A data type declares its cache once, as a static field created by {@link #register(Class)}; other code can then
+ * look the cache up and configure it by type through {@link #getFor(Class)}.
+ */
+public final class ConstructCache<T extends AbstractObject> {
+
+    public final static int DEFAULT_MAXIMUM_SIZE = 1 << 16;
+
+    private final static Map<Class<? extends AbstractObject>, ConstructCache<?>> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the construct cache of a type, creating it if the type does not have one yet.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends AbstractObject> ConstructCache<T> register(Class<T> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Cannot register a construct cache for a null type!");
+        }
+        return (ConstructCache<T>) CACHES.computeIfAbsent(type, k -> new ConstructCache<>(type));
+    }
+
+    /**
+     * Returns the construct cache of a type, or null if it does not have one.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends AbstractObject> ConstructCache<T> getFor(Class<T> type) {
+        return (ConstructCache<T>) CACHES.get(type);
+    }
+
+    public static Collection<ConstructCache<?>> getAll() {
+        return Collections.unmodifiableCollection(CACHES.values());
+    }
+
+    private final Class<T> type;
+    private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    // Guarded by queueLock
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private Entry<T> head, tail;
+
+    private ConstructCache(Class<T> type) {
+        this.type = type;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of cached objects. If the cache is larger, the oldest entries are removed immediately.
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("The maximum size of a cache cannot be negative! Received: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        queueLock.lock();
+        try {
+            evictOverflow(CoarseClock.now());
+        }
+        finally {
+            queueLock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the cached object for a String, constructing and caching it first if needed.
+     * @param constructor Creates the object from the String. A null result is returned but not cached.
+     */
+    public T get(String key, Function<String, ? extends T> constructor) {
+        Entry<T> entry = entries.get(key);
+        if (entry != null) {
+            long now = CoarseClock.now();
+            if (entry.accessed != now) {
+                entry.accessed = now;
+            }
+            return entry.value;
+        }
+
+        T value = constructor.apply(key);
+        if (value == null) {
+            return null;
+        }
+        entry = new Entry<>(key, value, CoarseClock.tick());
+        Entry<T> existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            return existing.value;
+        }
+        queueLock.lock();
+        try {
+            enqueue(entry, entry.queuedAt);
+            evictOverflow(entry.queuedAt);
+        }
+        finally {
+            queueLock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Removes every entry that has not been requested for the given amount of time.
+     * @param idleMillis The time, in milliseconds, after which an unused entry expires.
+     * @return The number of removed entries.
+     */
+    public int expire(long idleMillis) {
+        long now = CoarseClock.tick();
+        long cutoff = now - idleMillis;
+        int removed = 0;
+        queueLock.lock();
+        try {
+            Entry<T> entry;
+            while ((entry = head) != null && entry.queuedAt <= cutoff) {
+                poll();
+                if (entry.accessed <= cutoff) {
+                    removed += entries.remove(entry.key, entry) ? 1 : 0;
+                }
+                else {
+                    enqueue(entry, now);
+                }
+            }
+        }
+        finally {
+            queueLock.unlock();
+        }
+        return removed;
+    }
+
+    public void clear() {
+        queueLock.lock();
+        try {
+            entries.clear();
+            head = null;
+            tail = null;
+        }
+        finally {
+            queueLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConstructCache[" + type.getSimpleName() + ", size=" + entries.size() + "/" + maximumSize + "]";
+    }
+
+
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Queue handling, only called while holding queueLock
+
+    private void evictOverflow(long now) {
+        Entry<T> entry;
+        while (entries.size() > maximumSize && (entry = head) != null) {
+            poll();
+            if (entry.accessed > entry.queuedAt) {
+                // Requested since it was queued, so give it a second chance
+                enqueue(entry, now);
+            }
+            else {
+                entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    private void enqueue(Entry<T> entry, long now) {
+        entry.queuedAt = now;
+        entry.next = null;
+        if (tail == null) {
+            head = entry;
+        }
+        else {
+            tail.next = entry;
+        }
+        tail = entry;
+    }
+
+    private void poll() {
+        head = head.next;
+        if (head == null) {
+            tail = null;
+        }
+    }
+
+    private static final class Entry<T> {
+        final String key;
+        final T value;
+        volatile long accessed;
+        long queuedAt;
+        Entry<T> next;
+
+        Entry(String key, T value, long now) {
+            this.key = key;
+            this.value = value;
+            this.accessed = now;
+            this.queuedAt = now;
+        }
+    }
+}
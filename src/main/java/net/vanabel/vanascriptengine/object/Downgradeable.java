@@ -3,4 +3,13 @@ package net.vanabel.vanascriptengine.object;
 public interface Downgradeable {
 
     AbstractObject downgrade();
+
+    /**
+     * Returns the class of the objects returned by {@link #downgrade()}, if it is always the same. Attribute handlers
+     * use it to tell whether the downgraded object can process an attribute without downgrading first. If null, the
+     * class of the first downgraded object is used instead.
+     */
+    default Class<? extends AbstractObject> getDowngradeType() {
+        return null;
+    }
 }
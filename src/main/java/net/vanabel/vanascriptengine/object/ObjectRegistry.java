@@ -8,19 +8,125 @@ import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
 import net.vanabel.vanascriptengine.object.datatype.DataTypeObject;
 import net.vanabel.vanascriptengine.tag.attribute.Attributable;
 import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import net.vanabel.vanascriptengine.util.cache.BoundedCache;
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
 import net.vanabel.vanascriptengine.util.reflection.ReflectionHelper;
 
+import java.lang.annotation.Annotation;
 import java.lang.invoke.CallSite;
 import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public final class ObjectRegistry {
 
+    // Guarded by REGISTRY_LOCK; only read directly until the registry is frozen
     private final static Map<Class<? extends AbstractObject>, ObjType<? extends AbstractObject>> CLASS_TO_OBJECT = new HashMap<>();
+    private final static Object REGISTRY_LOCK = new Object();
+    // Null until frozen, then an immutable snapshot of CLASS_TO_OBJECT that is swapped out on every registration
+    private static volatile TypeTable frozenTypes;
+
+    /**
+     * Compacts the registered types into an immutable lookup table that every thread reads without locking. Until
+     * this is called, every lookup synchronizes with registration. Types can still be registered afterwards; each
+     * registration then rebuilds the table and swaps it in atomically, so it should be called once the startup
+     * registrations are done.
+     */
+    public static void freeze() {
+        synchronized (REGISTRY_LOCK) {
+            frozenTypes = new TypeTable(CLASS_TO_OBJECT);
+        }
+    }
+
+    public static boolean isFrozen() {
+        return frozenTypes != null;
+    }
+
+    // Incremented on every registration, so that resolutions made before it are recomputed
+    private static volatile int registrationGeneration = 0;
+
+    /**
+     * Returns a number that changes whenever a type is registered, for caching results derived from the registry.
+     */
+    public static int getRegistrationGeneration() {
+        return registrationGeneration;
+    }
+
+    /**
+     * Caches, per class, the registered type that applies to it. Being a ClassValue, the cached resolution is
+     * released together with the class rather than keeping its class loader alive.
+     */
+    private final static ClassValue<ResolvedType> RESOLVED_TYPES = new ClassValue<ResolvedType>() {
+        @Override
+        protected ResolvedType computeValue(Class<?> type) {
+            int generation = registrationGeneration;
+            return new ResolvedType(generation, findNearestType(type));
+        }
+    };
+
+    private final static class ResolvedType {
+        final int generation;
+        final ObjType<?> objType;
+
+        ResolvedType(int generation, ObjType<?> objType) {
+            this.generation = generation;
+            this.objType = objType;
+        }
+    }
+
+    private static ObjType<?> resolveType(Class<?> objClass) {
+        if (objClass == null) {
+            return null;
+        }
+        ResolvedType resolved = RESOLVED_TYPES.get(objClass);
+        if (resolved.generation != registrationGeneration) {
+            RESOLVED_TYPES.remove(objClass);
+            resolved = RESOLVED_TYPES.get(objClass);
+        }
+        return resolved.objType;
+    }
+
+    /**
+     * Walks up from a class to the nearest registered type. At each level of the superclass chain, the class is
+     * checked before the interfaces it declares, and those interfaces before their own superinterfaces.
+     */
+    private static ObjType<?> findNearestType(Class<?> objClass) {
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> c = objClass; c != null; c = c.getSuperclass()) {
+            ObjType<?> objType = getType(c);
+            if (objType != null) {
+                return objType;
+            }
+            interfaces.clear();
+            Collections.addAll(interfaces, c.getInterfaces());
+            for (int i = 0; i < interfaces.size(); i++) {
+                objType = getType(interfaces.get(i));
+                if (objType != null) {
+                    return objType;
+                }
+                for (Class<?> superInterface : interfaces.get(i).getInterfaces()) {
+                    if (!interfaces.contains(superInterface)) {
+                        interfaces.add(superInterface);
+                    }
+                }
+            }
+        }
+        return null;
+    }
 
     public static <T extends DataTypeObject> boolean registerDataType(Class<T> objClass) {
         if (objClass == null) {
@@ -36,7 +142,7 @@ public final class ObjectRegistry {
             // TODO: Debug
             return false;
         }
-        return CLASS_TO_OBJECT.putIfAbsent(objClass, new DataObjType<T>() {
+        if (putType(objClass, new DataObjType<T>() {
             @Override
             public ConstructorMethod<T> con() {
                 return c;
@@ -46,14 +152,18 @@ public final class ObjectRegistry {
             public MatcherMethod mat() {
                 return m;
             }
-        }) == null;
+        }, true) != null) {
+            return false;
+        }
+        onRegistered(objClass, c, m);
+        return true;
     }
 
     public static <T extends AbstractObject> boolean registerObject(Class<T> objClass) {
         if (objClass == null) {
             return false;
         }
-        ObjType<?> objType = CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = getType(objClass);
         if (objType != null) {
             if (objType instanceof AttrModType) {
                 // TODO: Debug stronger declaration
@@ -80,7 +190,7 @@ public final class ObjectRegistry {
             // TODO: Debug
             return false;
         }
-        CLASS_TO_OBJECT.put(objClass, new ObjType<T>() {
+        putType(objClass, new ObjType<T>() {
             @Override
             public ConstructorMethod<T> con() {
                 return c;
@@ -90,7 +200,8 @@ public final class ObjectRegistry {
             public MatcherMethod mat() {
                 return m;
             }
-        });
+        }, false);
+        onRegistered(objClass, c, m);
         return true;
     }
 
@@ -98,7 +209,7 @@ public final class ObjectRegistry {
         if (objClass == null) {
             return false;
         }
-        ObjType<?> objType = CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = getType(objClass);
         if (objType != null) {
             if (objType instanceof AttrModType) {
                 // TODO: Debug stronger declaration
@@ -128,7 +239,7 @@ public final class ObjectRegistry {
             // TODO: Debug
             return false;
         }
-        CLASS_TO_OBJECT.put(objClass, new AttrType<T>() {
+        putType(objClass, new AttrType<T>() {
             @Override
             public ConstructorMethod<T> con() {
                 return c;
@@ -143,7 +254,8 @@ public final class ObjectRegistry {
             public Attribute.Handler<T> aH() {
                 return aH;
             }
-        });
+        }, false);
+        onRegistered(objClass, c, m);
         return true;
     }
 
@@ -151,7 +263,7 @@ public final class ObjectRegistry {
         if (objClass == null) {
             return false;
         }
-        ObjType<?> objType = CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = getType(objClass);
         if (objType != null) {
             if (objType instanceof AttrModType) {
                 // TODO: Debug stronger declaration
@@ -181,7 +293,7 @@ public final class ObjectRegistry {
             // TODO: Debug
             return false;
         }
-        CLASS_TO_OBJECT.put(objClass, new ModType<T>() {
+        putType(objClass, new ModType<T>() {
             @Override
             public ConstructorMethod<T> con() {
                 return c;
@@ -196,7 +308,8 @@ public final class ObjectRegistry {
             public Modifier.Handler<T> mH() {
                 return mH;
             }
-        });
+        }, false);
+        onRegistered(objClass, c, m);
         return true;
     }
 
@@ -204,7 +317,7 @@ public final class ObjectRegistry {
         if (objClass == null) {
             return false;
         }
-        ObjType<?> objType = CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = getType(objClass);
         if (objType != null) {
             if (objType instanceof AttrModType) {
                 return false;
@@ -229,7 +342,7 @@ public final class ObjectRegistry {
             // TODO: Debug
             return false;
         }
-        CLASS_TO_OBJECT.put(objClass, new AttrModType<T>() {
+        putType(objClass, new AttrModType<T>() {
             @Override
             public ConstructorMethod<T> con() {
                 return c;
@@ -249,55 +362,199 @@ public final class ObjectRegistry {
             public Modifier.Handler<T> mH() {
                 return mH;
             }
-        });
+        }, false);
+        onRegistered(objClass, c, m);
         return true;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Registers every type listed by the {@link ObjectTypeIndex ObjectTypeIndexes} visible to the context class loader
+     * of the current thread.
+     * @return The number of newly registered types.
+     */
+    public static int registerIndexedTypes() {
+        return registerIndexedTypes(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Registers every type listed by the {@link ObjectTypeIndex ObjectTypeIndexes} visible to a class loader. Their
+     * constructors, matchers, handlers and cache clearers are taken from the index instead of being looked up by
+     * reflection.
+     * @return The number of newly registered types.
+     */
+    public static int registerIndexedTypes(ClassLoader loader) {
+        int registered = 0;
+        for (ObjectTypeIndex index : ServiceLoader.load(ObjectTypeIndex.class, loader)) {
+            for (TypeBinding<?> binding : index.getBindings()) {
+                if (register(binding)) {
+                    registered++;
+                }
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Registers a type from a binding, choosing the kind of registration from the handlers it provides.
+     * @return Whether the type was newly registered.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static boolean register(TypeBinding<?> binding) {
+        Class type = binding.getType();
+        INDEXED_BINDINGS.putIfAbsent(type, binding);
+        try {
+            boolean attr = binding.getAttributeHandler() != null;
+            boolean mod = binding.getModifierHandler() != null;
+            if (DataTypeObject.class.isAssignableFrom(type)) {
+                return registerDataType(type);
+            }
+            if (attr && mod) {
+                return registerAttributableModifiableObject(type);
+            }
+            if (attr) {
+                return registerAttributableObject(type);
+            }
+            if (mod) {
+                return registerModifiableObject(type);
+            }
+            return registerObject(type);
+        }
+        finally {
+            // Only still present if the class was described before, in which case the binding goes unused
+            INDEXED_BINDINGS.remove(type, binding);
+        }
+    }
+
+    /**
+     * Returns the attribute handler of a class, or of its nearest registered superclass or interface if the class
+     * itself was not registered.
+     */
     public static <T extends AbstractObject> Attribute.Handler<?> getAttributeHandlerFor(Class<T> objClass) {
-        ObjType<T> objType = (ObjType<T>) CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = resolveType(objClass);
         return objType instanceof AttrType ? ((AttrType<?>) objType).aH() : null;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns the modifier handler of a class, or of its nearest registered superclass or interface if the class
+     * itself was not registered.
+     */
     public static <T extends AbstractObject> Modifier.Handler<?> getModifierHandlerFor(Class<T> objClass) {
-        ObjType<T> objType = (ObjType<T>) CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = resolveType(objClass);
         return objType instanceof ModType ? ((ModType<?>) objType).mH() : null;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Constructs an object of the given class from a String. If the class itself was not registered, the constructor
+     * of its nearest registered superclass or interface is used, and the result is only returned if it is an instance
+     * of the requested class.
+     */
     public static <T extends AbstractObject> T constructForClass(String value, Class<T> objClass) {
-        ObjType<T> objType = (ObjType<T>) CLASS_TO_OBJECT.get(objClass);
+        ObjType<?> objType = resolveType(objClass);
         if (objType == null) {
             return null;
         }
-        return objType.con().construct(value);
+        AbstractObject obj = objType.con().construct(value);
+        return objClass.isInstance(obj) ? objClass.cast(obj) : null;
     }
 
-    public static <T extends AbstractObject> void clearCacheFor(Class<T> objClass) {
-        Method lastMethod = null;
-        try {
-            for (Method m : ReflectionHelper.getStaticMethodsForAnnotation(objClass, ObjectCacheClearer.class)) {
-                m.setAccessible(true);
-                lastMethod = m;
-                m.invoke(null, m.getAnnotation(ObjectCacheClearer.class).clearDelay());
-                m.setAccessible(false);
-            }
+    /**
+     * Constructs the registered object type that best matches a String, for when the expected type is not known.
+     * Each type whose {@link ObjectMatcher} accepts the String is tried in order of priority, highest first, and the
+     * first successfully constructed object is returned. Types whose declared character classes or length bounds
+     * exclude the String are skipped without calling their matcher; these are checked against a character class mask
+     * built in a single pass over the String. The winning type of recently seen Strings is remembered.
+     * @return The constructed object, or null if no registered type matches.
+     */
+    public static AbstractObject constructBestMatch(String value) {
+        if (value == null) {
+            return null;
         }
-        catch (Exception e) {
-            // Do nothing.
+        MatchTable table = matchTable;
+        MatchCandidate known = table.classifications.getIfPresent(value);
+        if (known != null) {
+            AbstractObject obj = known.con.construct(value);
+            if (obj != null) {
+                return obj;
+            }
         }
-        finally {
-            if (lastMethod != null) {
-                lastMethod.setAccessible(false);
+
+        int mask = CharClass.classify(value);
+        int length = value.length();
+        for (MatchCandidate candidate : table.candidates) {
+            if (!candidate.mayMatch(mask, length) || !candidate.mat.matches(value)) {
+                continue;
+            }
+            AbstractObject obj = candidate.con.construct(value);
+            if (obj != null) {
+                table.classifications.put(value, candidate);
+                return obj;
             }
         }
+        return null;
+    }
+
+    /**
+     * Overrides the {@link ObjectMatcher#priority() priority} a registered type has in
+     * {@link #constructBestMatch(String)}.
+     */
+    public static void setMatchPriority(Class<? extends AbstractObject> objClass, int priority) {
+        PRIORITY_OVERRIDES.put(objClass, priority);
+        rebuildMatchTable();
+    }
+
+    /**
+     * Restores the {@link ObjectMatcher#priority() declared priority} of a type.
+     */
+    public static void resetMatchPriority(Class<? extends AbstractObject> objClass) {
+        if (PRIORITY_OVERRIDES.remove(objClass) != null) {
+            rebuildMatchTable();
+        }
     }
 
-    public static void clearCacheForAll() {
-        for (Class<? extends AbstractObject> objClss : CLASS_TO_OBJECT.keySet()) {
-            clearCacheFor(objClss);
+    /**
+     * Returns the registered types in the order in which {@link #constructBestMatch(String)} tries them.
+     */
+    public static List<Class<? extends AbstractObject>> getMatchOrder() {
+        List<Class<? extends AbstractObject>> order = new ArrayList<>();
+        for (MatchCandidate candidate : matchTable.candidates) {
+            order.add(candidate.type);
         }
+        return order;
+    }
+
+    /**
+     * Immediately runs every cache clearer of a registered object type with its declared delay.
+     * @return The number of entries removed by the clearers that report it.
+     */
+    public static <T extends AbstractObject> int clearCacheFor(Class<T> objClass) {
+        CacheClearer[] clearers = CACHE_CLEARERS.get(objClass);
+        if (clearers == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (CacheClearer clearer : clearers) {
+            removed += Math.max(0, CacheMaintenance.sweep(clearer).getRemoved());
+        }
+        return removed;
+    }
+
+    public static int clearCacheForAll() {
+        int removed = 0;
+        for (Class<? extends AbstractObject> objClss : CACHE_CLEARERS.keySet()) {
+            removed += clearCacheFor(objClss);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the cache clearers of every registered object type.
+     */
+    public static Collection<CacheClearer> getCacheClearers() {
+        List<CacheClearer> all = new ArrayList<>();
+        for (CacheClearer[] clearers : CACHE_CLEARERS.values()) {
+            Collections.addAll(all, clearers);
+        }
+        return all;
     }
 
 
@@ -305,6 +562,43 @@ public final class ObjectRegistry {
     ////////////////////////////////////////////////////////////////////////////////////////////////
     // Private helping methods, interfaces, and fields
 
+    private final static Map<Class<? extends AbstractObject>, CacheClearer[]> CACHE_CLEARERS = new ConcurrentHashMap<>();
+
+    private final static int CLASSIFICATION_CACHE_SIZE = 4096;
+    private final static Map<Class<? extends AbstractObject>, MatchCandidate> MATCH_CANDIDATES = new LinkedHashMap<>();
+    private final static Map<Class<? extends AbstractObject>, Integer> PRIORITY_OVERRIDES = new ConcurrentHashMap<>();
+    private static volatile MatchTable matchTable = new MatchTable(new MatchCandidate[0]);
+
+    private static ObjType<?> getType(Class<?> objClass) {
+        TypeTable table = frozenTypes;
+        if (table != null) {
+            return table.get(objClass);
+        }
+        synchronized (REGISTRY_LOCK) {
+            return CLASS_TO_OBJECT.get(objClass);
+        }
+    }
+
+    /**
+     * Registers an object type, rebuilding the frozen lookup table if there is one.
+     * @return The type previously registered for the class, if any.
+     */
+    private static ObjType<?> putType(Class<? extends AbstractObject> objClass, ObjType<?> objType,
+                                      boolean onlyIfAbsent) {
+        synchronized (REGISTRY_LOCK) {
+            ObjType<?> previous = onlyIfAbsent ?
+                    CLASS_TO_OBJECT.putIfAbsent(objClass, objType) :
+                    CLASS_TO_OBJECT.put(objClass, objType);
+            if (previous == null || !onlyIfAbsent) {
+                if (frozenTypes != null) {
+                    frozenTypes = new TypeTable(CLASS_TO_OBJECT);
+                }
+                registrationGeneration++;
+            }
+            return previous;
+        }
+    }
+
     private final static String ATTRIBUTE_HANDLER_FIELD_NAME = "ATTRIBUTE_HANDLER";
     private final static String MODIFIER_HANDLER_FIELD_NAME = "MODIFIER_HANDLER";
 
@@ -336,98 +630,336 @@ public final class ObjectRegistry {
 
     private interface AttrModType<T extends AbstractObject & Attributable & Modifiable> extends AttrType<T>, ModType<T> {}
 
-    private static MatcherMethod getMatcherFromClass(Class<? extends AbstractObject> objClass)
-            throws IllegalStateException {
-        Method m = null;
-        try {
-            Method[] mArray = ReflectionHelper.getStaticMethodsForAnnotation(objClass, ObjectMatcher.class);
-            if (mArray.length != 1) {
-                throw new IllegalStateException("All AbstractObject implementations must have only one static " +
-                        "method with the ObjectMatcher annotation!");
+    /**
+     * An immutable open-addressing table from classes to their registered types, sized for its contents at a load
+     * factor of at most one half.
+     */
+    private final static class TypeTable {
+        final Class<?>[] keys;
+        final ObjType<?>[] values;
+        final int mask;
+
+        TypeTable(Map<Class<? extends AbstractObject>, ObjType<? extends AbstractObject>> types) {
+            int capacity = Integer.highestOneBit(Math.max(1, types.size()) * 2 - 1) << 1;
+            keys = new Class<?>[capacity];
+            values = new ObjType<?>[capacity];
+            mask = capacity - 1;
+            for (Map.Entry<Class<? extends AbstractObject>, ObjType<? extends AbstractObject>> entry : types.entrySet()) {
+                int i = indexFor(entry.getKey());
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = entry.getKey();
+                values[i] = entry.getValue();
+            }
+        }
+
+        private int indexFor(Class<?> key) {
+            int h = System.identityHashCode(key);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        ObjType<?> get(Class<?> key) {
+            for (int i = indexFor(key); keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
             }
+            return null;
+        }
+    }
 
-            m = mArray[0];
-            m.setAccessible(true);
-            String methodName = m.getName();
-            final MethodHandles.Lookup lookup = MethodHandles.lookup();
-            MethodType typeForBoolean = MethodType.methodType(Boolean.class, String.class).unwrap();
-            CallSite site = LambdaMetafactory.metafactory(
-                    lookup,
-                    "matches",
-                    MethodType.methodType(MatcherMethod.class),
-                    typeForBoolean,
-                    lookup.findStatic(objClass, methodName, typeForBoolean),
-                    typeForBoolean
-            );
-            return (MatcherMethod) site.getTarget().invoke();
-        }
-        catch (Throwable t) {
-            throw new IllegalStateException("Could not fetch a matcher method from " + objClass.getName() + "!");
+    private final static class MatchCandidate {
+        final Class<? extends AbstractObject> type;
+        final ConstructorMethod<?> con;
+        final MatcherMethod mat;
+        final int priority, chars, minLength, maxLength;
+
+        MatchCandidate(Class<? extends AbstractObject> type, ConstructorMethod<?> con, MatcherMethod mat,
+                       TypeDescriptor descriptor) {
+            this.type = type;
+            this.con = con;
+            this.mat = mat;
+            this.priority = descriptor.priority;
+            this.chars = descriptor.chars;
+            this.minLength = descriptor.minLength;
+            this.maxLength = descriptor.maxLength;
         }
-        finally {
-            if (m != null) {
-                m.setAccessible(false);
+
+        boolean mayMatch(int mask, int length) {
+            return (mask & ~chars) == 0 && length >= minLength && length <= maxLength;
+        }
+    }
+
+    /**
+     * An immutable snapshot of the candidates in priority order, along with the classifications made using it.
+     */
+    private final static class MatchTable {
+        final MatchCandidate[] candidates;
+        final BoundedCache<String, MatchCandidate> classifications = new BoundedCache<>(CLASSIFICATION_CACHE_SIZE);
+
+        MatchTable(MatchCandidate[] candidates) {
+            this.candidates = candidates;
+        }
+    }
+
+    private static <T extends AbstractObject> void onRegistered(Class<T> objClass, ConstructorMethod<T> c,
+                                                                MatcherMethod m) {
+        bindCacheClearers(objClass);
+        TypeDescriptor descriptor = DESCRIPTORS.get(objClass);
+        synchronized (MATCH_CANDIDATES) {
+            MATCH_CANDIDATES.put(objClass, new MatchCandidate(objClass, c, m, descriptor));
+        }
+        rebuildMatchTable();
+    }
+
+    private static void rebuildMatchTable() {
+        synchronized (MATCH_CANDIDATES) {
+            MatchCandidate[] candidates = MATCH_CANDIDATES.values().toArray(new MatchCandidate[0]);
+            // Stable, so types with equal priority keep their registration order
+            Arrays.sort(candidates, Comparator.comparingInt((MatchCandidate candidate) ->
+                    PRIORITY_OVERRIDES.getOrDefault(candidate.type, candidate.priority)).reversed());
+            matchTable = new MatchTable(candidates);
+        }
+    }
+
+    /**
+     * Schedules the cache clearers of a type the first time it is registered.
+     */
+    private static void bindCacheClearers(Class<? extends AbstractObject> objClass) {
+        if (CACHE_CLEARERS.containsKey(objClass)) {
+            return;
+        }
+        CacheClearer[] clearers = DESCRIPTORS.get(objClass).clearers;
+        if (CACHE_CLEARERS.putIfAbsent(objClass, clearers) == null) {
+            for (CacheClearer clearer : clearers) {
+                CacheMaintenance.onClearerBound(clearer);
             }
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T extends AbstractObject> ConstructorMethod<T> getConstrFromClass(Class<T> objClass)
-            throws IllegalStateException {
-        Method m = null;
-        try {
-            Method[] mArray = ReflectionHelper.getStaticMethodsForAnnotation(objClass, ObjectConstructor.class);
-            if (mArray.length != 1) {
+    /**
+     * Everything registration needs from a class, found and bound once per class. Parts the class does not provide
+     * are kept as the exception explaining why, which is thrown when that part is requested.
+     */
+    private final static class TypeDescriptor {
+        final ConstructorMethod<?> con;
+        final MatcherMethod mat;
+        final int priority, chars, minLength, maxLength;
+        final Attribute.Handler<?> aH;
+        final Modifier.Handler<?> mH;
+        final CacheClearer[] clearers;
+        final IllegalStateException conError, matError, aHError, mHError;
+
+        @SuppressWarnings("unchecked")
+        TypeDescriptor(Class<?> clss) {
+            Class<? extends AbstractObject> objClass = AbstractObject.class.isAssignableFrom(clss) ?
+                    (Class<? extends AbstractObject>) clss : null;
+
+            ConstructorMethod<?> c = null;
+            IllegalStateException cE = null;
+            try {
+                c = bindConstructor(objClass);
+            }
+            catch (IllegalStateException e) {
+                cE = e;
+            }
+            con = c;
+            conError = cE;
+
+            Method matcher = soleStaticMethod(clss, ObjectMatcher.class);
+            ObjectMatcher annotation = matcher == null ? null : matcher.getAnnotation(ObjectMatcher.class);
+            priority = annotation == null ? 0 : annotation.priority();
+            chars = annotation == null ? CharClass.ANY : annotation.chars();
+            minLength = annotation == null ? 0 : annotation.minLength();
+            maxLength = annotation == null ? Integer.MAX_VALUE : annotation.maxLength();
+            MatcherMethod m = null;
+            IllegalStateException mE = null;
+            try {
+                m = bindMatcher(objClass);
+            }
+            catch (IllegalStateException e) {
+                mE = e;
+            }
+            mat = m;
+            matError = mE;
+
+            Object handler = null;
+            IllegalStateException hE = null;
+            try {
+                handler = readStaticField(clss, ATTRIBUTE_HANDLER_FIELD_NAME, Attribute.Handler.class);
+            }
+            catch (IllegalStateException e) {
+                hE = new IllegalStateException("Attributable object \"" + clss.getSimpleName() + "\" does not " +
+                        "have a field \"ATTRIBUTE_HANDLER\" with an AttributeHandler!");
+            }
+            aH = (Attribute.Handler<?>) handler;
+            aHError = hE;
+
+            handler = null;
+            hE = null;
+            try {
+                handler = readStaticField(clss, MODIFIER_HANDLER_FIELD_NAME, Modifier.Handler.class);
+            }
+            catch (IllegalStateException e) {
+                hE = new IllegalStateException("Modifiable object \"" + clss.getSimpleName() + "\" does not have " +
+                        "a field \"MODIFIER_HANDLER\" with a ModifierHandler!");
+            }
+            mH = (Modifier.Handler<?>) handler;
+            mHError = hE;
+
+            List<CacheClearer> bound = new ArrayList<>(1);
+            List<Method> methods = ReflectionHelper.getStaticMethodListForAnnotation(clss, ObjectCacheClearer.class, false);
+            if (objClass != null && methods != null) {
+                for (Method method : methods) {
+                    try {
+                        bound.add(CacheClearer.bind(objClass, method));
+                    }
+                    catch (IllegalStateException e) {
+                        // TODO: Debug
+                    }
+                }
+            }
+            clearers = bound.toArray(new CacheClearer[0]);
+        }
+
+        TypeDescriptor(TypeBinding<?> binding) {
+            Function<String, ? extends AbstractObject> constructor = binding.getConstructor();
+            con = constructor::apply;
+            mat = binding.getMatcher()::test;
+            priority = binding.getPriority();
+            chars = binding.getChars();
+            minLength = binding.getMinLength();
+            maxLength = binding.getMaxLength();
+            aH = binding.getAttributeHandler();
+            mH = binding.getModifierHandler();
+            clearers = binding.getCacheClearers().toArray(new CacheClearer[0]);
+            conError = null;
+            matError = null;
+            aHError = aH != null ? null : new IllegalStateException("The binding of \"" +
+                    binding.getType().getSimpleName() + "\" does not have an AttributeHandler!");
+            mHError = mH != null ? null : new IllegalStateException("The binding of \"" +
+                    binding.getType().getSimpleName() + "\" does not have a ModifierHandler!");
+        }
+
+        private static Method soleStaticMethod(Class<?> clss, Class<? extends Annotation> aClss) {
+            List<Method> methods = ReflectionHelper.getStaticMethodListForAnnotation(clss, aClss, false);
+            return methods != null && methods.size() == 1 ? methods.get(0) : null;
+        }
+
+        private static MatcherMethod bindMatcher(Class<? extends AbstractObject> objClass)
+                throws IllegalStateException {
+            Method m = objClass == null ? null : soleStaticMethod(objClass, ObjectMatcher.class);
+            if (m == null) {
                 throw new IllegalStateException("All AbstractObject implementations must have only one static " +
-                        "method with the ObjectConstructor annotation!");
+                        "method with the ObjectMatcher annotation!");
+            }
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType typeForBoolean = MethodType.methodType(Boolean.class, String.class).unwrap();
+                CallSite site = LambdaMetafactory.metafactory(
+                        lookup,
+                        "matches",
+                        MethodType.methodType(MatcherMethod.class),
+                        typeForBoolean,
+                        lookup.findStatic(objClass, m.getName(), typeForBoolean),
+                        typeForBoolean
+                );
+                return (MatcherMethod) site.getTarget().invoke();
             }
+            catch (Throwable t) {
+                throw new IllegalStateException("Could not fetch a matcher method from " + objClass.getName() + "!");
+            }
+        }
 
-            m = mArray[0];
-            m.setAccessible(true);
-            String methodName = m.getName();
-            final MethodHandles.Lookup lookup = MethodHandles.lookup();
-            MethodType type = MethodType.methodType(objClass, String.class);
-            CallSite site = LambdaMetafactory.metafactory(
-                    lookup,
-                    "construct",
-                    MethodType.methodType(ConstructorMethod.class),
-                    MethodType.methodType(AbstractObject.class, String.class),
-                    lookup.findStatic(objClass, methodName, type),
-                    type
-            );
-            return (ConstructorMethod<T>) site.getTarget().invoke();
-        }
-        catch (Throwable t) {
-            throw new IllegalStateException("Could not fetch a construction method from " + objClass.getName() + "!");
+        private static ConstructorMethod<?> bindConstructor(Class<? extends AbstractObject> objClass)
+                throws IllegalStateException {
+            Method m = objClass == null ? null : soleStaticMethod(objClass, ObjectConstructor.class);
+            if (m == null) {
+                throw new IllegalStateException("All AbstractObject implementations must have only one static " +
+                        "method with the ObjectConstructor annotation!");
+            }
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType type = MethodType.methodType(objClass, String.class);
+                CallSite site = LambdaMetafactory.metafactory(
+                        lookup,
+                        "construct",
+                        MethodType.methodType(ConstructorMethod.class),
+                        MethodType.methodType(AbstractObject.class, String.class),
+                        lookup.findStatic(objClass, m.getName(), type),
+                        type
+                );
+                return (ConstructorMethod<?>) site.getTarget().invoke();
+            }
+            catch (Throwable t) {
+                throw new IllegalStateException("Could not fetch a construction method from " + objClass.getName() + "!");
+            }
         }
-        finally {
-            if (m != null) {
-                m.setAccessible(false);
+
+        private static Object readStaticField(Class<?> clss, String name, Class<?> fieldType)
+                throws IllegalStateException {
+            try {
+                MethodHandle getter = MethodHandles.lookup().findStaticGetter(clss, name, clss.getDeclaredField(name).getType());
+                Object value = getter.invoke();
+                if (!fieldType.isInstance(value)) {
+                    throw new IllegalStateException();
+                }
+                return value;
+            }
+            catch (Throwable t) {
+                throw new IllegalStateException(t);
             }
         }
     }
 
+    // Bindings waiting to become descriptors; removed once they have, so that they do not pin their classes
+    private final static Map<Class<?>, TypeBinding<?>> INDEXED_BINDINGS = new ConcurrentHashMap<>();
+
+    private final static ClassValue<TypeDescriptor> DESCRIPTORS = new ClassValue<TypeDescriptor>() {
+        @Override
+        protected TypeDescriptor computeValue(Class<?> type) {
+            TypeBinding<?> binding = INDEXED_BINDINGS.remove(type);
+            return binding != null ? new TypeDescriptor(binding) : new TypeDescriptor(type);
+        }
+    };
+
+    private static MatcherMethod getMatcherFromClass(Class<? extends AbstractObject> objClass)
+            throws IllegalStateException {
+        TypeDescriptor descriptor = DESCRIPTORS.get(objClass);
+        if (descriptor.matError != null) {
+            throw descriptor.matError;
+        }
+        return descriptor.mat;
+    }
+
     @SuppressWarnings("unchecked")
-    private static <T extends AbstractObject & Attributable> Attribute.Handler<T> getAttrHandFromClass(Class<T> objClass)
+    private static <T extends AbstractObject> ConstructorMethod<T> getConstrFromClass(Class<T> objClass)
             throws IllegalStateException {
-        try {
-            return (Attribute.Handler<T>) objClass.getDeclaredField(ATTRIBUTE_HANDLER_FIELD_NAME).get(null);
+        TypeDescriptor descriptor = DESCRIPTORS.get(objClass);
+        if (descriptor.conError != null) {
+            throw descriptor.conError;
         }
-        catch (Exception e) {
-            throw new IllegalStateException("Attributable object \"" + objClass.getSimpleName() + "\" does not have " +
-                    "a field \"ATTRIBUTE_HANDLER\" with an AttributeHandler!");
+        return (ConstructorMethod<T>) descriptor.con;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends AbstractObject & Attributable> Attribute.Handler<T> getAttrHandFromClass(Class<T> objClass)
+            throws IllegalStateException {
+        TypeDescriptor descriptor = DESCRIPTORS.get(objClass);
+        if (descriptor.aHError != null) {
+            throw descriptor.aHError;
         }
+        return (Attribute.Handler<T>) descriptor.aH;
     }
 
     @SuppressWarnings("unchecked")
     private static <T extends AbstractObject & Modifiable> Modifier.Handler<T> getModHandFromClass(Class<T> objClass)
             throws IllegalStateException {
-        try {
-            return (Modifier.Handler<T>) objClass.getDeclaredField(MODIFIER_HANDLER_FIELD_NAME).get(null);
-        }
-        catch (Exception e) {
-            throw new IllegalStateException("Modifiable object \"" + objClass.getSimpleName() + "\" does not have a " +
-                    "field \"MODIFIER_HANDLER\" with a ModifierHandler!");
+        TypeDescriptor descriptor = DESCRIPTORS.get(objClass);
+        if (descriptor.mHError != null) {
+            throw descriptor.mHError;
         }
+        return (Modifier.Handler<T>) descriptor.mH;
     }
 }
@@ -0,0 +1,14 @@
+package net.vanabel.vanascriptengine.object;
+
+import java.util.Collection;
+
+/**
+ * A list of object types that can be registered without reflection, found through {@link java.util.ServiceLoader} by
+ * {@link ObjectRegistry#registerIndexedTypes()}. Implementations are normally generated at compile time by the
+ * vanascriptengine-processor annotation processor from the {@link net.vanabel.vanascriptengine.object.annotation
+ * object annotations}, which also rejects types whose annotations are missing or malformed.
+ */
+public interface ObjectTypeIndex {
+
+    Collection<TypeBinding<?>> getBindings();
+}
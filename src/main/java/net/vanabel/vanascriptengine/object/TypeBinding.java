@@ -0,0 +1,172 @@
+package net.vanabel.vanascriptengine.object;
+
+import net.vanabel.vanascriptengine.modifier.Modifier;
+import net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer;
+import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
+import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
+import net.vanabel.vanascriptengine.util.validator.ObjectValidator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongToIntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Everything {@link ObjectRegistry} needs to register an object type, given directly instead of being found through
+ * its annotations. Each part corresponds to an annotated member of the type.
+ * @see ObjectTypeIndex
+ */
+public final class TypeBinding<T extends AbstractObject> {
+
+    public static <T extends AbstractObject> Builder<T> builder(Class<T> type, Function<String, ? extends T> constructor,
+                                                                Predicate<String> matcher) {
+        return new Builder<>(type, constructor, matcher);
+    }
+
+    private final Class<T> type;
+    private final Function<String, ? extends T> constructor;
+    private final Predicate<String> matcher;
+    private final int priority, chars, minLength, maxLength;
+    private final Attribute.Handler<?> attributeHandler;
+    private final Modifier.Handler<?> modifierHandler;
+    private final List<CacheClearer> cacheClearers;
+
+    private TypeBinding(Builder<T> builder) {
+        this.type = builder.type;
+        this.constructor = builder.constructor;
+        this.matcher = builder.matcher;
+        this.priority = builder.priority;
+        this.chars = builder.chars;
+        this.minLength = builder.minLength;
+        this.maxLength = builder.maxLength;
+        this.attributeHandler = builder.attributeHandler;
+        this.modifierHandler = builder.modifierHandler;
+        this.cacheClearers = Collections.unmodifiableList(new ArrayList<>(builder.cacheClearers));
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public Function<String, ? extends T> getConstructor() {
+        return constructor;
+    }
+
+    public Predicate<String> getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * @see ObjectMatcher#priority()
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @see ObjectMatcher#chars()
+     */
+    public int getChars() {
+        return chars;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the attribute handler of the type, or null if it is not attributable.
+     */
+    public Attribute.Handler<?> getAttributeHandler() {
+        return attributeHandler;
+    }
+
+    /**
+     * Returns the modifier handler of the type, or null if it is not modifiable.
+     */
+    public Modifier.Handler<?> getModifierHandler() {
+        return modifierHandler;
+    }
+
+    public List<CacheClearer> getCacheClearers() {
+        return cacheClearers;
+    }
+
+    @Override
+    public String toString() {
+        return "TypeBinding[" + type.getName() + "]";
+    }
+
+    public static final class Builder<T extends AbstractObject> {
+        private final Class<T> type;
+        private final Function<String, ? extends T> constructor;
+        private final Predicate<String> matcher;
+        private int priority = 0, chars = CharClass.ANY, minLength = 0, maxLength = Integer.MAX_VALUE;
+        private Attribute.Handler<?> attributeHandler;
+        private Modifier.Handler<?> modifierHandler;
+        private final List<CacheClearer> cacheClearers = new ArrayList<>(1);
+
+        private Builder(Class<T> type, Function<String, ? extends T> constructor, Predicate<String> matcher) {
+            this.type = ObjectValidator.objectIsNonNull(type, "A type must be provided!");
+            this.constructor = ObjectValidator.objectIsNonNull(constructor, "A constructor must be provided!");
+            this.matcher = ObjectValidator.objectIsNonNull(matcher, "A matcher must be provided!");
+        }
+
+        /**
+         * Sets the elements of the type's {@link ObjectMatcher} annotation.
+         */
+        public Builder<T> matcher(int priority, int chars, int minLength, int maxLength) {
+            this.priority = priority;
+            this.chars = chars;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        public Builder<T> attributeHandler(Attribute.Handler<?> handler) {
+            this.attributeHandler = handler;
+            return this;
+        }
+
+        public Builder<T> modifierHandler(Modifier.Handler<?> handler) {
+            this.modifierHandler = handler;
+            return this;
+        }
+
+        /**
+         * Adds an {@link ObjectCacheClearer} that returns the number of entries it removed.
+         * @param name The name of the annotated method.
+         */
+        public Builder<T> countingCacheClearer(String name, LongToIntFunction clearer, long clearDelay,
+                                               long checkDelay) {
+            ObjectValidator.objectIsNonNull(clearer, "A cache clearer must be provided!");
+            cacheClearers.add(CacheClearer.of(type, name, clearDelay, checkDelay, clearer::applyAsInt));
+            return this;
+        }
+
+        /**
+         * Adds an {@link ObjectCacheClearer} that does not report how many entries it removed.
+         * @param name The name of the annotated method.
+         */
+        public Builder<T> cacheClearer(String name, LongConsumer clearer, long clearDelay, long checkDelay) {
+            ObjectValidator.objectIsNonNull(clearer, "A cache clearer must be provided!");
+            cacheClearers.add(CacheClearer.of(type, name, clearDelay, checkDelay, delay -> {
+                clearer.accept(delay);
+                return CacheClearer.UNKNOWN_REMOVED;
+            }));
+            return this;
+        }
+
+        public TypeBinding<T> build() {
+            return new TypeBinding<>(this);
+        }
+    }
+}
@@ -9,10 +9,14 @@ import java.lang.annotation.Target;
  * Indicates that a method declaration is intended to clear a cache for a particular
  * {@link net.vanabel.vanascriptengine.object.AbstractObject AbstractObject}. Not all
  * {@link net.vanabel.vanascriptengine.object.AbstractObject AbstractObjects} will require a cache.
+ * The method must be static and take a single long, the delay in milliseconds after which an unused entry should be
+ * removed. It may return an int with the number of removed entries, which is then included in sweep reports.
+ * Once {@link net.vanabel.vanascriptengine.object.CacheMaintenance CacheMaintenance} is started, the method is called
+ * every {@link #customCheckDelay()} milliseconds with {@link #clearDelay()}.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface ObjectCacheClearer {
-    int clearDelay() default 300 * 1000;
+    long clearDelay() default 300 * 1000;
     long customCheckDelay() default 300 * 1000;
 }
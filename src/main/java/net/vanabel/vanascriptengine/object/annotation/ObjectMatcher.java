@@ -1,5 +1,7 @@
 package net.vanabel.vanascriptengine.object.annotation;
 
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -10,8 +12,27 @@ import java.lang.annotation.Target;
  * particular {@link net.vanabel.vanascriptengine.object.AbstractObject AbstractObject}. All
  * {@link net.vanabel.vanascriptengine.object.AbstractObject AbstractObjects} will require one
  * static method that uses this annotation.
+ * <p>
+ * The optional elements describe every String the method can accept, and are used by
+ * {@link net.vanabel.vanascriptengine.object.ObjectRegistry#constructBestMatch(String)
+ * ObjectRegistry.constructBestMatch} to skip the method without calling it. They must never exclude a String the
+ * method would accept.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface ObjectMatcher {
+
+    /**
+     * When several types match a String, the type with the highest priority is constructed.
+     */
+    int priority() default 0;
+
+    /**
+     * The {@link CharClass character classes} that may appear in a matching String.
+     */
+    int chars() default CharClass.ANY;
+
+    int minLength() default 0;
+
+    int maxLength() default Integer.MAX_VALUE;
 }
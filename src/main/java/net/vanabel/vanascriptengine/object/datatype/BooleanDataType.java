@@ -2,6 +2,7 @@ package net.vanabel.vanascriptengine.object.datatype;
 
 import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
 
 public final class BooleanDataType extends DataTypeObject {
 
@@ -28,9 +29,9 @@ public final class BooleanDataType extends DataTypeObject {
         return null;
     }
 
-    @ObjectMatcher
+    @ObjectMatcher( priority = 200, chars = CharClass.DIGIT | CharClass.LETTERS, minLength = 1, maxLength = 5 )
     public static boolean matches(String val) {
-        return val != null && val.matches("^true|false|0|1$");
+        return construct(val) != null;
     }
 
     private boolean val;
@@ -1,12 +1,9 @@
 package net.vanabel.vanascriptengine.object.datatype;
 
-import net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer;
 import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
-import net.vanabel.vanascriptengine.util.DuoNode;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class CharDataType extends DataTypeObject {
 
@@ -15,19 +12,46 @@ public class CharDataType extends DataTypeObject {
         if (val == null || val.length() != 1) {
             return null;
         }
-        long time = System.currentTimeMillis();
-        DuoNode<Long, CharDataType> node = CONSTRUCT_CACHE.computeIfAbsent(val, k -> new DuoNode<>(time, new CharDataType(val.charAt(0))));
-        if (node.getLeft() != time) {
-            node.setLeft(time);
+        return valueOf(val.charAt(0));
+    }
+
+    /**
+     * Returns the CharDataType for the character at an index of a sequence, such as a parser buffer.
+     * @return The CharDataType, or null if the sequence is null or the index is out of bounds.
+     */
+    public static CharDataType construct(CharSequence seq, int index) {
+        if (seq == null || index < 0 || index >= seq.length()) {
+            return null;
         }
-        return node.getRight();
+        return valueOf(seq.charAt(index));
     }
 
-    @ObjectMatcher
+    @ObjectMatcher( priority = 100, minLength = 1, maxLength = 1 )
     public static boolean matches(String val) {
         return val != null && val.length() == 1;
     }
 
+    /**
+     * Returns the shared CharDataType for a character. Every call with the same character returns the same instance.
+     */
+    public static CharDataType valueOf(char c) {
+        if (c < LATIN_1_SIZE) {
+            return LATIN_1[c];
+        }
+        AtomicReferenceArray<CharDataType> page = PAGES.get(c >>> PAGE_BITS);
+        if (page == null) {
+            PAGES.compareAndSet(c >>> PAGE_BITS, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = PAGES.get(c >>> PAGE_BITS);
+        }
+        int index = c & (PAGE_SIZE - 1);
+        CharDataType cdt = page.get(index);
+        if (cdt == null) {
+            page.compareAndSet(index, null, new CharDataType(c));
+            cdt = page.get(index);
+        }
+        return cdt;
+    }
+
     private final char val;
 
     public CharDataType(char c) {
@@ -43,21 +67,33 @@ public class CharDataType extends DataTypeObject {
         return String.valueOf(val);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == getClass() && val == ((CharDataType) o).val);
+    }
+
+    @Override
+    public int hashCode() {
+        return val;
+    }
+
 
 
     ////////////////////////////////////////////////////////////////////////////
-    // Cache fields and methods
-
-    private final static Map<String, DuoNode<Long, CharDataType>> CONSTRUCT_CACHE = new HashMap<>();
-
-    @ObjectCacheClearer( customCheckDelay = 1000 )
-    public static void clearCache(long delay) {
-        long time = System.currentTimeMillis();
-        for (String key : CONSTRUCT_CACHE.keySet()) {
-            DuoNode<Long, CharDataType> node = CONSTRUCT_CACHE.get(key);
-            if (time - node.getLeft() > delay) {
-                CONSTRUCT_CACHE.remove(key);
-            }
+    // Flyweight fields
+
+    private final static int LATIN_1_SIZE = 256;
+    private final static int PAGE_BITS = 8;
+    private final static int PAGE_SIZE = 1 << PAGE_BITS;
+
+    // Latin-1 is filled eagerly. The rest of the BMP is split into pages that are created and filled on first use.
+    private final static CharDataType[] LATIN_1 = new CharDataType[LATIN_1_SIZE];
+    private final static AtomicReferenceArray<AtomicReferenceArray<CharDataType>> PAGES =
+            new AtomicReferenceArray<>((Character.MAX_VALUE + 1) >>> PAGE_BITS);
+
+    static {
+        for (int c = 0; c < LATIN_1_SIZE; c++) {
+            LATIN_1[c] = new CharDataType((char) c);
         }
     }
 }
@@ -1,14 +1,12 @@
 package net.vanabel.vanascriptengine.object.datatype;
 
+import net.vanabel.vanascriptengine.object.ConstructCache;
 import net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer;
 import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
-import net.vanabel.vanascriptengine.util.DuoNode;
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
 import net.vanabel.vanascriptengine.util.conversion.StringUtils;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Represents a general integer data type.
  * This object's numerical range is bounded by Java's long primitive data type.
@@ -23,31 +21,36 @@ public class IntegerDataType extends DataTypeObject {
      */
     @ObjectConstructor
     public static IntegerDataType construct(String val) {
-        if (val == null || !matches(val)) {
+        if (val == null) {
             return null;
         }
-        long time = System.currentTimeMillis();
-        DuoNode<Long, IntegerDataType> node = CONSTRUCT_CACHE.computeIfAbsent(val, k -> new DuoNode<>(time, null));
-        if (node.getLeft() != time) {
-            node.setLeft(time);
+        IntegerDataType pooled = getPooledLiteral(val);
+        if (pooled != null) {
+            return pooled;
         }
-        if (node.getRight() == null) {
-            if (StringUtils.matchesBinaryPattern(val)) {
-                node.setRight(new IntegerDataType(Long.parseLong(val.substring(2), 2)));
-            }
-            else if (StringUtils.matchesHexadecimalPattern(val)) {
-                node.setRight(new IntegerDataType(Long.parseLong(val.substring(2), 16)));
-            }
-            else {
-                node.setRight(new IntegerDataType(val));
-            }
+        return CONSTRUCT_CACHE.get(val, IntegerDataType::parse);
+    }
+
+    private static IntegerDataType parse(String val) {
+        long[] result = new long[1];
+        return StringUtils.scanInteger(val, 0, val.length(), result) > 0 ? valueOf(result[0]) : null;
+    }
+
+    /**
+     * Returns an IntegerDataType for a value. Values within the pooled range (see {@link #POOL_LOW} and
+     * {@link #POOL_HIGH}) always return the same instance, so this should be preferred over the constructors.
+     */
+    public static IntegerDataType valueOf(long l) {
+        if (l >= POOL_LOW && l <= POOL_HIGH) {
+            return POOL[(int) (l - POOL_LOW)];
         }
-        return node.getRight();
+        return new IntegerDataType(l);
     }
 
-    @ObjectMatcher
+    @ObjectMatcher( priority = 400, minLength = 1, chars = CharClass.DIGIT | CharClass.SIGN | CharClass.LETTER_X |
+            CharClass.LETTER_B | CharClass.LETTER_E | CharClass.HEX_LETTER )
     public static boolean matches(String val) {
-        return StringUtils.matchesIntegerPattern(val);
+        return StringUtils.isIntegerLiteral(val);
     }
 
     private final long val;
@@ -103,21 +106,86 @@ public class IntegerDataType extends DataTypeObject {
         return String.valueOf(val);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == getClass() && val == ((IntegerDataType) o).val);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(val);
+    }
+
 
 
     ////////////////////////////////////////////////////////////////////////////
-    // Cache fields and methods
+    // Pool fields and methods
 
-    private final static Map<String, DuoNode<Long, IntegerDataType>> CONSTRUCT_CACHE = new HashMap<>();
+    /**
+     * The lowest pooled value. Can be set through the system property "vanascriptengine.integerPool.low".
+     */
+    public final static int POOL_LOW;
+    /**
+     * The highest pooled value. Can be set through the system property "vanascriptengine.integerPool.high".
+     */
+    public final static int POOL_HIGH;
+    private final static IntegerDataType[] POOL;
+    private final static int MAXIMUM_POOL_SIZE = 1 << 20;
+
+    static {
+        int low = Integer.getInteger("vanascriptengine.integerPool.low", -128);
+        int high = Integer.getInteger("vanascriptengine.integerPool.high", 1023);
+        if (high < low || (long) high - low >= MAXIMUM_POOL_SIZE) {
+            // TODO: Debug invalid pool range
+            low = -128;
+            high = 1023;
+        }
+        POOL_LOW = low;
+        POOL_HIGH = high;
+        POOL = new IntegerDataType[high - low + 1];
+        for (int i = 0; i < POOL.length; i++) {
+            POOL[i] = new IntegerDataType(low + i);
+        }
+    }
 
-    @ObjectCacheClearer( customCheckDelay = 1000 )
-    public static void clearCache(long delay) {
-        long time = System.currentTimeMillis();
-        for (String key : CONSTRUCT_CACHE.keySet()) {
-            DuoNode<Long, IntegerDataType> node = CONSTRUCT_CACHE.get(key);
-            if (time - node.getLeft() > delay) {
-                CONSTRUCT_CACHE.remove(key);
+    /**
+     * Returns the pooled instance for a plain decimal literal of at most nine digits, without touching the construct
+     * cache. Returns null if the literal is longer, is not plain decimal, or falls outside the pooled range.
+     */
+    private static IntegerDataType getPooledLiteral(String val) {
+        int len = val.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (val.charAt(0) == '-' || val.charAt(0) == '+')) {
+            negative = val.charAt(0) == '-';
+            i = 1;
+        }
+        if (len == i || len - i > 9) {
+            return null;
+        }
+        int value = 0;
+        for (; i < len; i++) {
+            char c = val.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
             }
+            value = value * 10 + (c - '0');
         }
+        if (negative) {
+            value = -value;
+        }
+        return value >= POOL_LOW && value <= POOL_HIGH ? POOL[value - POOL_LOW] : null;
+    }
+
+
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Cache fields and methods
+
+    private final static ConstructCache<IntegerDataType> CONSTRUCT_CACHE = ConstructCache.register(IntegerDataType.class);
+
+    @ObjectCacheClearer( customCheckDelay = 1000 )
+    public static int clearCache(long delay) {
+        return CONSTRUCT_CACHE.expire(delay);
     }
 }
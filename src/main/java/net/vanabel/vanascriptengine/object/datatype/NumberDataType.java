@@ -1,14 +1,12 @@
 package net.vanabel.vanascriptengine.object.datatype;
 
+import net.vanabel.vanascriptengine.object.ConstructCache;
 import net.vanabel.vanascriptengine.object.annotation.ObjectCacheClearer;
 import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
-import net.vanabel.vanascriptengine.util.DuoNode;
+import net.vanabel.vanascriptengine.util.conversion.CharClass;
 import net.vanabel.vanascriptengine.util.conversion.StringUtils;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Represents a general numeric data type. Encompasses both decimals and integers.
  * This object's numerical range is bounded by Java's double primitive data type.
@@ -17,20 +15,21 @@ public class NumberDataType extends DataTypeObject {
 
     @ObjectConstructor
     public static NumberDataType construct(String val) {
-        if (val == null || !matches(val)) {
+        if (val == null) {
             return null;
         }
-        long time = System.currentTimeMillis();
-        DuoNode<Long, NumberDataType> node = CONSTRUCT_CACHE.computeIfAbsent(val, k -> new DuoNode<>(time, new NumberDataType(val)));
-        if (node.getLeft() != time) {
-            node.setLeft(time);
-        }
-        return node.getRight();
+        return CONSTRUCT_CACHE.get(val, NumberDataType::parse);
+    }
+
+    private static NumberDataType parse(String val) {
+        double d = StringUtils.scanDecimal(val, 0, val.length());
+        return Double.isNaN(d) ? null : new NumberDataType(d);
     }
 
-    @ObjectMatcher
+    @ObjectMatcher( priority = 300, minLength = 1,
+            chars = CharClass.DIGIT | CharClass.SIGN | CharClass.DOT | CharClass.LETTER_E )
     public static boolean matches(String val) {
-        return StringUtils.matchesDecimalPattern(val);
+        return StringUtils.isDecimalLiteral(val);
     }
 
     private final double val;
@@ -72,7 +71,7 @@ public class NumberDataType extends DataTypeObject {
         if (Double.compare(down, val) != 0) {
             throw new ArithmeticException(this + " cannot be converted to an integer.");
         }
-        return new IntegerDataType((long) down);
+        return IntegerDataType.valueOf((long) down);
     }
 
     public double getValue() {
@@ -84,21 +83,25 @@ public class NumberDataType extends DataTypeObject {
         return String.valueOf(val);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == getClass() && Double.doubleToLongBits(val) == Double.doubleToLongBits(((NumberDataType) o).val));
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(val);
+    }
+
 
 
     ////////////////////////////////////////////////////////////////////////////
     // Cache fields and methods
 
-    private final static Map<String, DuoNode<Long, NumberDataType>> CONSTRUCT_CACHE = new HashMap<>();
+    private final static ConstructCache<NumberDataType> CONSTRUCT_CACHE = ConstructCache.register(NumberDataType.class);
 
     @ObjectCacheClearer( customCheckDelay = 1000 )
-    public static void clearCache(long delay) {
-        long time = System.currentTimeMillis();
-        for (String key : CONSTRUCT_CACHE.keySet()) {
-            DuoNode<Long, NumberDataType> node = CONSTRUCT_CACHE.get(key);
-            if (time - node.getLeft() > delay) {
-                CONSTRUCT_CACHE.remove(key);
-            }
-        }
+    public static int clearCache(long delay) {
+        return CONSTRUCT_CACHE.expire(delay);
     }
 }
@@ -8,14 +8,70 @@ import net.vanabel.vanascriptengine.object.ObjectRegistry;
 import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
 import net.vanabel.vanascriptengine.tag.attribute.Attributable;
 import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import net.vanabel.vanascriptengine.util.SymbolTable;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an encapsulated object type. All objects of this type are cloneable.
  */
 public abstract class EncapsulatedObject extends AbstractObject implements Attributable, Cloneable {
 
+    /**
+     * The handler every {@link AttributeHandler} inherits from by default, holding the attributes shared across all
+     * encapsulated objects.
+     */
+    public final static AttributeHandler<EncapsulatedObject> ATTRIBUTE_HANDLER = new AttributeHandler<>(null);
+
+    static {
+        ////////////////////////////////////////////////////////////////////////
+        // Universal attributes shared across all objects
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> new TextObject(object.getObjectTypeName()),
+                "object_type", "objectType"
+        );
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> object.clone(),
+                "clone"
+        );
+
+        ////////////////////////////////////////////////////////////////////////
+        // Downgrade (equivalent to casting upwards in Java)
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> BooleanDataType.getForBoolean(object instanceof Downgradeable),
+                "downgradeable"
+        );
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> {
+                    if (object instanceof Downgradeable) {
+                        return ((Downgradeable) object).downgrade();
+                    }
+                    return null;
+                },
+                "downgrade"
+        );
+
+        ////////////////////////////////////////////////////////////////////////
+        // Modifiable
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> BooleanDataType.getForBoolean(object instanceof Modifiable),
+                "modifiable"
+        );
+        ATTRIBUTE_HANDLER.registerAttributes(
+                (Attribute.DirectProcessor<EncapsulatedObject>) (object, attribute) -> {
+                    Modifier.Handler<?> modHand = ObjectRegistry.getModifierHandlerFor(object.getClass());
+                    if (modHand instanceof ModifierHandler) {
+                        return ((ModifierHandler<?>) modHand).getModifierNameSet();
+                    }
+                    return modHand == null ? null : NameSet.toSetObject(modHand.getModifiers());
+                },
+                "valid_modifiers", "validModifiers"
+        );
+    }
+
     public abstract String getObjectTypeName();
 
     public abstract String getObjectTypeNamePlural();
@@ -30,6 +86,16 @@ public abstract class EncapsulatedObject extends AbstractObject implements Attri
         }
     }
 
+    /**
+     * Returns an object that can be changed without affecting this one, given to processors that are not
+     * {@link Attribute.DirectProcessor direct}. This is a clone by default; types that never change return themselves,
+     * and types with contents may share what neither object changes in place. This object must not be changed by the
+     * copy, not even to mark what they share, since objects are processed on many threads at once.
+     */
+    public EncapsulatedObject copyOnWrite() {
+        return clone();
+    }
+
 
 
     ////////////////////////////////////////////////////////////////////////////
@@ -37,64 +103,34 @@ public abstract class EncapsulatedObject extends AbstractObject implements Attri
 
     public static class AttributeHandler<T extends EncapsulatedObject> extends Attribute.Handler<T> {
 
+        private final NameSet attributeNameSet = new NameSet();
+
+        /**
+         * Creates a handler that inherits the universal attributes of {@link EncapsulatedObject#ATTRIBUTE_HANDLER}.
+         */
         public AttributeHandler() {
-            ////////////////////////////////////////////////////////////////////
-            // Universal attributes shared across all objects
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> new TextObject(object.getObjectTypeName()),
-                    "object_type", "objectType"
-            );
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> object.clone(),
-                    "clone"
-            );
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> {
-                        SetObject names = new SetObject(new HashSet<TextObject>());
-                        for (String a : getAttributes()) {
-                            names.add(new TextObject(a));
-                        }
-                        return names;
-                    },
-                    "valid_attributes", "validAttributes"
-            );
+            this(EncapsulatedObject.ATTRIBUTE_HANDLER);
+        }
 
-            ////////////////////////////////////////////////////////////////////
-            // Downgrade (equivalent to casting upwards in Java)
+        /**
+         * Creates a handler that inherits every attribute of the given handler, such as the handler of the superclass
+         * of its type.
+         */
+        public AttributeHandler(Attribute.Handler<? super T> parent) {
+            super(parent);
+            // Registered on every handler, so the names are those of the handler that processes the attribute
             registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> BooleanDataType.getForBoolean(object instanceof Downgradeable),
-                    "downgradeable"
-            );
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> {
-                        if (object instanceof Downgradeable) {
-                            return ((Downgradeable) object).downgrade();
-                        }
-                        return null;
-                    },
-                    "downgrade"
+                    (Attribute.DirectProcessor<T>) (object, attribute) -> getAttributeNameSet(),
+                    "valid_attributes", "validAttributes"
             );
+        }
 
-            ////////////////////////////////////////////////////////////////////
-            // Modifiable
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> BooleanDataType.getForBoolean(object instanceof Modifiable),
-                    "modifiable"
-            );
-            registerAttributes(
-                    (Attribute.DirectProcessor<T>) (object, attribute) -> {
-                        SetObject names = new SetObject(new HashSet<TextObject>());
-                        Modifier.Handler<?> modHand = ObjectRegistry.getModifierHandlerFor(object.getClass());
-                        if (modHand != null) {
-                            for (String m : modHand.getModifiers()) {
-                                names.add(new TextObject(m));
-                            }
-                            return names;
-                        }
-                        return null;
-                    },
-                    "valid_modifiers", "validModifiers"
-            );
+        /**
+         * Returns the names of all attributes of this handler as a set of text objects that cannot be changed. The
+         * set is only rebuilt when the attributes change.
+         */
+        public SetObject getAttributeNameSet() {
+            return attributeNameSet.get(getVersion(), getAttributes());
         }
 
         @Override
@@ -110,15 +146,23 @@ public abstract class EncapsulatedObject extends AbstractObject implements Attri
             }
 
             int previousFulfilled = attribute.getFulfilledCount();
-            String aName = attribute.getName();
             AbstractObject result = null;
-            Attribute.Processor<T> processor = getProcessorFor(aName);
 
-            if (processor != null) {
-                if (!(processor instanceof Attribute.DirectProcessor)) {
-                    object = (T) object.clone();
+            // Dotted names are matched greedily, falling back to the first component alone if they give no result
+            Attribute.PrefixNode<T> prefix = getLongestPrefix(attribute);
+            if (prefix != null) {
+                Attribute.Processor<T> prefixProcessor = prefix.getProcessor();
+                result = prefixProcessor.process(receiverFor(prefixProcessor, object), attribute);
+                if (result != null) {
+                    attribute.fulfill(prefix.getLength());
+                    return result;
                 }
-                result = processor.process(object, attribute);
+            }
+
+            Attribute.Processor<T> processor = getProcessorFor(attribute.getComponent().getSymbol());
+
+            if (processor != null) {
+                result = processor.process(receiverFor(processor, object), attribute);
             }
             if (result != null) {
                 attribute.fulfill();
@@ -126,19 +170,174 @@ public abstract class EncapsulatedObject extends AbstractObject implements Attri
             }
 
             if (object instanceof Downgradeable) {
-                AbstractObject downgrade = ((Downgradeable) object).downgrade();
-                if (downgrade instanceof Attributable) {
-                    Attributable atr = (Attributable) downgrade;
-                    // TODO: Downgrade object and re-process using downgraded object's attribute handler
-                    return null;
-                }
+                return processDowngraded(object, attribute);
             }
             return null;
         }
+
+        /**
+         * Returns the object itself for a direct processor, or a fresh copy-on-write object otherwise, so that each
+         * processor tried sees the object as it was before any of them changed it.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T extends EncapsulatedObject> T receiverFor(Attribute.Processor<T> processor, T object) {
+            return processor instanceof Attribute.DirectProcessor ? object : (T) object.copyOnWrite();
+        }
+
+        ////////////////////////////////////////////////////////////////////
+        // Downgrade fallback
+
+        private final ClassValue<DowngradeRoutes> downgradeRoutes = new ClassValue<DowngradeRoutes>() {
+            @Override
+            protected DowngradeRoutes computeValue(Class<?> type) {
+                return new DowngradeRoutes();
+            }
+        };
+
+        /**
+         * Processes an attribute this handler could not process on the object's downgrade, which is only created if
+         * the attribute is known to be processable by the handler of its type.
+         */
+        private AbstractObject processDowngraded(T object, Attribute attribute) {
+            DowngradeRoute route = routeFor(object, attribute.getComponent().getSymbol());
+            if (!route.processable) {
+                return null;
+            }
+            AbstractObject downgrade = ((Downgradeable) object).downgrade();
+            if (!(downgrade instanceof Attributable)) {
+                return null;
+            }
+            Attribute.Handler<?> handler = downgrade.getClass() == route.type ?
+                    route.handler :
+                    ObjectRegistry.getAttributeHandlerFor(downgrade.getClass());
+            return handler == null ? null : processWith(handler, downgrade, attribute);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <D extends Attributable> AbstractObject processWith(Attribute.Handler<D> handler,
+                                                                           AbstractObject downgrade,
+                                                                           Attribute attribute) {
+            return handler.processAttribute((D) downgrade, attribute);
+        }
+
+        private DowngradeRoute routeFor(T object, int symbol) {
+            int version = getVersion();
+            int generation = ObjectRegistry.getRegistrationGeneration();
+            DowngradeRoutes routes = downgradeRoutes.get(object.getClass());
+            DowngradeRoute[] bySymbol = routes.bySymbol;
+            DowngradeRoute route = symbol >= 0 && symbol < bySymbol.length ? bySymbol[symbol] : null;
+            if (route != null && route.isCurrent(version, generation)) {
+                return route;
+            }
+
+            Downgradeable downgradeable = (Downgradeable) object;
+            Class<? extends AbstractObject> type = downgradeable.getDowngradeType();
+            if (type == null) {
+                type = routes.learnedType;
+                if (type == null) {
+                    AbstractObject downgrade = downgradeable.downgrade();
+                    type = downgrade == null ? null : downgrade.getClass();
+                    routes.learnedType = type;
+                }
+            }
+            Attribute.Handler<?> handler = type == null ? null : ObjectRegistry.getAttributeHandlerFor(type);
+            int handlerVersion = handler == null ? 0 : handler.getVersion();
+            // The downgrade may still be able to pass the attribute on to its own downgrade
+            boolean processable = handler != null &&
+                    (handler.getProcessorFor(symbol) != null || handler.hasDottedNameStartingWith(symbol) ||
+                            Downgradeable.class.isAssignableFrom(type));
+            route = new DowngradeRoute(version, generation, type, handler, handlerVersion, processable);
+            if (symbol >= 0) {
+                routes.store(symbol, route);
+            }
+            return route;
+        }
+    }
+
+    /**
+     * How each attribute of one Downgradeable class falls back to its downgrade, indexed by symbol id.
+     */
+    private final static class DowngradeRoutes {
+        volatile DowngradeRoute[] bySymbol = new DowngradeRoute[0];
+        volatile Class<? extends AbstractObject> learnedType;
+
+        synchronized void store(int symbol, DowngradeRoute route) {
+            DowngradeRoute[] updated = symbol < bySymbol.length ?
+                    bySymbol.clone() :
+                    Arrays.copyOf(bySymbol, Math.max(symbol + 1, SymbolTable.size()));
+            updated[symbol] = route;
+            bySymbol = updated;
+        }
+    }
+
+    private final static class DowngradeRoute {
+        final int version, generation, handlerVersion;
+        final Class<? extends AbstractObject> type;
+        final Attribute.Handler<?> handler;
+        final boolean processable;
+
+        DowngradeRoute(int version, int generation, Class<? extends AbstractObject> type, Attribute.Handler<?> handler,
+                       int handlerVersion, boolean processable) {
+            this.version = version;
+            this.generation = generation;
+            this.type = type;
+            this.handler = handler;
+            this.handlerVersion = handlerVersion;
+            this.processable = processable;
+        }
+
+        boolean isCurrent(int version, int generation) {
+            return this.version == version && this.generation == generation &&
+                    (handler == null || handler.getVersion() == handlerVersion);
+        }
+    }
+
+    /**
+     * The names of a handler as a set of text objects, kept until the handler's version changes.
+     */
+    private final static class NameSet {
+        private volatile Snapshot snapshot;
+
+        static SetObject toSetObject(Set<String> names) {
+            List<TextObject> texts = new ArrayList<>(names.size());
+            for (String name : names) {
+                texts.add(new TextObject(name));
+            }
+            return SetObject.unmodifiableOf(TextObject.class, texts);
+        }
+
+        SetObject get(int version, Set<String> names) {
+            Snapshot current = snapshot;
+            if (current == null || current.version != version) {
+                current = new Snapshot(version, toSetObject(names));
+                snapshot = current;
+            }
+            return current.names;
+        }
+
+        private final static class Snapshot {
+            final int version;
+            final SetObject names;
+
+            Snapshot(int version, SetObject names) {
+                this.version = version;
+                this.names = names;
+            }
+        }
     }
 
     public static class ModifierHandler<T extends EncapsulatedObject & Modifiable> extends Modifier.Handler<T> {
 
+        private final NameSet modifierNameSet = new NameSet();
+
+        /**
+         * Returns the names of all modifiers of this handler as a set of text objects that cannot be changed. The set
+         * is only rebuilt when the modifiers change.
+         */
+        public SetObject getModifierNameSet() {
+            return modifierNameSet.get(getVersion(), getModifiers());
+        }
+
         @Override
         public boolean processModifier(T object, Modifier modifier) {
             if (object == null || modifier == null) {
@@ -146,10 +345,9 @@ public abstract class EncapsulatedObject extends AbstractObject implements Attri
                 return false;
             }
 
-            String mName = modifier.getName();
-            Modifier.Processor<T> processor = getProcessorForModifier(mName);
+            Modifier.Processor<T> processor = getProcessorForModifier(modifier.getSymbol());
 
-            boolean isProcessed = processor.process(object, modifier);
+            boolean isProcessed = processor != null && processor.process(object, modifier);
 
             if (!isProcessed) {
                 // TODO: Debug
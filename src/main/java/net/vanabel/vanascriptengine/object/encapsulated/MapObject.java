@@ -0,0 +1,724 @@
+package net.vanabel.vanascriptengine.object.encapsulated;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+import net.vanabel.vanascriptengine.object.ObjectRegistry;
+import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
+import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
+import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
+import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.tag.attribute.ArgumentSchema;
+import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A map of objects, stored in an open-addressing table of parallel key, value and hash arrays, so that each entry
+ * costs three array slots instead of a node object. Keys cannot be null.
+ * <p>
+ * Text keys can be looked up by a String without creating a TextObject, which is how keys given in scripts are looked
+ * up. The key and value views and {@link #forEach(BiConsumer)} walk the arrays directly, without creating an object
+ * per entry.
+ * <p>
+ * Maps cannot be written as literals yet; scripts build them through the "put" attribute.
+ */
+public class MapObject extends EncapsulatedObject implements Map<AbstractObject, AbstractObject> {
+
+    public final static AttributeHandler<MapObject> ATTRIBUTE_HANDLER = new AttributeHandler<>();
+
+    public static void registerAttributes(Attribute.Processor<MapObject> processor, String... names) {
+        ATTRIBUTE_HANDLER.registerAttributes(processor, names);
+    }
+
+    private final static ArgumentSchema PUT_ARGUMENTS = ArgumentSchema.builder()
+            .parameter("key", TextObject.class, TextObject::construct)
+            .parameter("value", AbstractObject.class, MapObject::constructValue)
+            .build();
+
+    static {
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) -> IntegerDataType.valueOf(object.size()),
+                "size"
+        );
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) -> BooleanDataType.getForBoolean(object.isEmpty()),
+                "is_empty", "isEmpty"
+        );
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) -> {
+                    if (!attribute.hasContext()) {
+                        // TODO: Debug
+                        return null;
+                    }
+                    AbstractObject value = object.getByRawKey(attribute.getContext());
+                    if (value == null) {
+                        // TODO: Debug
+                    }
+                    return value;
+                }, "get"
+        );
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) -> {
+                    if (!attribute.hasContext()) {
+                        // TODO: Debug
+                        return BooleanDataType.getForBoolean(false);
+                    }
+                    return BooleanDataType.getForBoolean(object.getByRawKey(attribute.getContext()) != null);
+                }, "contains", "contains_key", "containsKey"
+        );
+        // Maps are changed in place, like their Java counterparts, so put is direct and never copies the map
+        ATTRIBUTE_HANDLER.registerAttributes(
+                PUT_ARGUMENTS,
+                (Attribute.DirectArgumentProcessor<MapObject>) (object, attribute, arguments) -> {
+                    AbstractObject key = arguments.get(0);
+                    AbstractObject value = arguments.get(1);
+                    if (key == null || value == null) {
+                        // TODO: Debug
+                        return object;
+                    }
+                    object.put(key, value);
+                    return object;
+                }, "put"
+        );
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) ->
+                        SetObject.unmodifiableOf(AbstractObject.class, object.keySet()),
+                "keys"
+        );
+        // Values held under more than one key appear once, so the set can be smaller than the map
+        registerAttributes(
+                (Attribute.DirectProcessor<MapObject>) (object, attribute) ->
+                        SetObject.unmodifiableOf(AbstractObject.class, object.values()),
+                "values"
+        );
+    }
+
+    private static AbstractObject constructValue(String raw) {
+        AbstractObject value = ObjectRegistry.constructBestMatch(raw);
+        return value != null ? value : TextObject.construct(raw);
+    }
+
+    @ObjectConstructor
+    public static MapObject construct(String value) {
+        // TODO: Parse?
+        return new MapObject();
+    }
+
+    @ObjectMatcher
+    public static boolean matches(String value) {
+        // TODO: This
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Table fields and methods
+
+    private final static int MIN_CAPACITY = 8;
+    private final static int MAX_CAPACITY = 1 << 30;
+
+    // An empty slot has a null key
+    private AbstractObject[] keys;
+    private AbstractObject[] values;
+    private int[] hashes;
+    private int size;
+    // The home slot of a hash is its top bits after mixing: (hash * golden ratio) >>> shift
+    private int shift;
+    private int modCount;
+
+    private Set<AbstractObject> keyView;
+    private Collection<AbstractObject> valueView;
+    private Set<Map.Entry<AbstractObject, AbstractObject>> entryView;
+
+    public MapObject() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a map that can hold the given number of entries before its table grows.
+     */
+    public MapObject(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new AbstractObject[capacity];
+        values = new AbstractObject[capacity];
+        hashes = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && maxEntries(capacity) < entries) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the number of entries a table can hold. At least a quarter of the slots are kept empty, so that probes
+     * stay short and always end.
+     */
+    private static int maxEntries(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int home(int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    private int slotOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int hash = hash(key);
+        AbstractObject[] k = keys;
+        int mask = k.length - 1;
+        for (int i = home(hash); ; i = (i + 1) & mask) {
+            AbstractObject current = k[i];
+            if (current == null) {
+                return -1;
+            }
+            if (hashes[i] == hash && (current == key || current.equals(key))) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a text key by its String, without creating a TextObject.
+     */
+    private int slotOfText(String text) {
+        int hash = hash(text);
+        AbstractObject[] k = keys;
+        int mask = k.length - 1;
+        for (int i = home(hash); ; i = (i + 1) & mask) {
+            AbstractObject current = k[i];
+            if (current == null) {
+                return -1;
+            }
+            if (hashes[i] == hash && current.getClass() == TextObject.class &&
+                    text.equals(((TextObject) current).getValue())) {
+                return i;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        AbstractObject[] oldKeys = keys;
+        AbstractObject[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new AbstractObject[capacity];
+        values = new AbstractObject[capacity];
+        hashes = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = home(oldHashes[j]);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    /**
+     * Empties a slot, moving later entries of its probe sequence back so that no lookup passes an empty slot before
+     * reaching its key.
+     */
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int j = (slot + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            // An entry can fill the hole if the hole is no further from its home slot than it is
+            if (((j - home(hashes[j])) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hashes[hole] = hashes[j];
+                hole = j;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        hashes[hole] = 0;
+        size--;
+        modCount++;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Object methods
+
+    /**
+     * Returns a map with the same entries. Its tables are copied, so this map is left untouched.
+     */
+    @Override
+    public MapObject clone() {
+        MapObject clone = (MapObject) super.clone();
+        clone.keys = keys.clone();
+        clone.values = values.clone();
+        clone.hashes = hashes.clone();
+        clone.keyView = null;
+        clone.valueView = null;
+        clone.entryView = null;
+        return clone;
+    }
+
+    @Override
+    public String getObjectTypeName() {
+        return "map";
+    }
+
+    @Override
+    public String getObjectTypeNamePlural() {
+        return "maps";
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "map@" + System.identityHashCode(this) + "[]";
+        }
+        StringBuilder sb = new StringBuilder("map@").append(System.identityHashCode(this)).append('[');
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                sb.append(keys[i].toString()).append('=').append(values[i].toString()).append(" , ");
+            }
+        }
+        return sb.substring(0, sb.length() - 3) + "]";
+    }
+
+    /**
+     * Returns whether an object is a map with the same entries, as required by {@link Map#equals(Object)}.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Map) || ((Map<?, ?>) o).size() != size) {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) o;
+        AbstractObject[] k = keys;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null) {
+                Object value = other.get(k[i]);
+                if (!Objects.equals(values[i], value) || (value == null && !other.containsKey(k[i]))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sum of the hash codes of the entries, as required by {@link Map#hashCode()}.
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        AbstractObject[] k = keys;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null) {
+                h += k[i].hashCode() ^ Objects.hashCode(values[i]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the value of a text key, without creating a TextObject for it.
+     */
+    public AbstractObject getByText(String key) {
+        if (key == null) {
+            return null;
+        }
+        int slot = slotOfText(key);
+        return slot == -1 ? null : values[slot];
+    }
+
+    public boolean containsText(String key) {
+        return key != null && slotOfText(key) != -1;
+    }
+
+    /**
+     * Returns the value of a key given in a script: the key as text, or otherwise whichever registered type the key
+     * best matches.
+     */
+    private AbstractObject getByRawKey(Attribute.Component.Context context) {
+        AbstractObject value = getByText(context.getRaw());
+        if (value == null) {
+            AbstractObject key = context.getRawAsBestMatch();
+            if (key != null && key.getClass() != TextObject.class) {
+                value = get(key);
+            }
+        }
+        return value;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Map methods
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) != -1;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        AbstractObject[] k = keys;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null && Objects.equals(values[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public AbstractObject get(Object key) {
+        int slot = slotOf(key);
+        return slot == -1 ? null : values[slot];
+    }
+
+    @Override
+    public AbstractObject put(AbstractObject key, AbstractObject value) {
+        if (key == null) {
+            throw new IllegalArgumentException("A map cannot have a null key!");
+        }
+        int hash = hash(key);
+        int mask = keys.length - 1;
+        int i = home(hash);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && (keys[i] == key || keys[i].equals(key))) {
+                AbstractObject previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        if (size + 1 > maxEntries(keys.length)) {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("A map cannot hold more than " + maxEntries(MAX_CAPACITY) + " entries!");
+            }
+            resize(keys.length << 1);
+            mask = keys.length - 1;
+            for (i = home(hash); keys[i] != null; i = (i + 1) & mask) {}
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public AbstractObject remove(Object key) {
+        int slot = slotOf(key);
+        if (slot == -1) {
+            return null;
+        }
+        AbstractObject previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends AbstractObject, ? extends AbstractObject> m) {
+        if (capacityFor(size + m.size()) > keys.length) {
+            resize(capacityFor(size + m.size()));
+        }
+        for (Map.Entry<? extends AbstractObject, ? extends AbstractObject> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        keys = new AbstractObject[MIN_CAPACITY];
+        values = new AbstractObject[MIN_CAPACITY];
+        hashes = new int[MIN_CAPACITY];
+        shift = Integer.numberOfLeadingZeros(MIN_CAPACITY) + 1;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super AbstractObject, ? super AbstractObject> action) {
+        int expectedModCount = modCount;
+        AbstractObject[] k = keys;
+        AbstractObject[] v = values;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null) {
+                action.accept(k[i], v[i]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<AbstractObject> keySet() {
+        if (keyView == null) {
+            keyView = new AbstractSet<AbstractObject>() {
+                @Override
+                public Iterator<AbstractObject> iterator() {
+                    return new SlotIterator<AbstractObject>() {
+                        @Override
+                        AbstractObject at(int slot) {
+                            return keys[slot];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    int slot = slotOf(o);
+                    if (slot == -1) {
+                        return false;
+                    }
+                    removeAt(slot);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    MapObject.this.clear();
+                }
+            };
+        }
+        return keyView;
+    }
+
+    @Override
+    public Collection<AbstractObject> values() {
+        if (valueView == null) {
+            valueView = new AbstractCollection<AbstractObject>() {
+                @Override
+                public Iterator<AbstractObject> iterator() {
+                    return new SlotIterator<AbstractObject>() {
+                        @Override
+                        AbstractObject at(int slot) {
+                            return values[slot];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    MapObject.this.clear();
+                }
+            };
+        }
+        return valueView;
+    }
+
+    /**
+     * Returns a view of the entries of this map. Unlike the other views, it creates an entry object for each entry it
+     * iterates; {@link #forEach(BiConsumer)} does not.
+     */
+    @Override
+    public Set<Map.Entry<AbstractObject, AbstractObject>> entrySet() {
+        if (entryView == null) {
+            entryView = new AbstractSet<Map.Entry<AbstractObject, AbstractObject>>() {
+                @Override
+                public Iterator<Map.Entry<AbstractObject, AbstractObject>> iterator() {
+                    return new SlotIterator<Map.Entry<AbstractObject, AbstractObject>>() {
+                        @Override
+                        Map.Entry<AbstractObject, AbstractObject> at(int slot) {
+                            return new Entry(keys[slot], values[slot]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    int slot = slotOf(((Map.Entry<?, ?>) o).getKey());
+                    return slot != -1 && Objects.equals(values[slot], ((Map.Entry<?, ?>) o).getValue());
+                }
+
+                @Override
+                public void clear() {
+                    MapObject.this.clear();
+                }
+            };
+        }
+        return entryView;
+    }
+
+    /**
+     * Walks the occupied slots of the table. It starts after an empty slot and wraps around, so that every probe
+     * sequence is walked in order; entries moved back by a removal then only ever move into the slot just removed,
+     * which is checked again.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final int start;
+        private int offset = 0;
+        private int next = -1;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        SlotIterator() {
+            int empty = 0;
+            while (keys[empty] != null) {
+                empty++;
+            }
+            start = empty + 1;
+            advance();
+        }
+
+        abstract E at(int slot);
+
+        private void advance() {
+            AbstractObject[] k = keys;
+            int mask = k.length - 1;
+            next = -1;
+            while (offset < k.length) {
+                int slot = (start + offset) & mask;
+                if (k[slot] != null) {
+                    next = slot;
+                    return;
+                }
+                offset++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == -1) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            offset++;
+            advance();
+            return at(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            expectedModCount = modCount;
+            // A later entry may have moved into the removed slot
+            offset = (last - start) & (keys.length - 1);
+            last = -1;
+            advance();
+        }
+    }
+
+    private final class Entry implements Map.Entry<AbstractObject, AbstractObject> {
+        private final AbstractObject key;
+        private AbstractObject value;
+
+        Entry(AbstractObject key, AbstractObject value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public AbstractObject getKey() {
+            return key;
+        }
+
+        @Override
+        public AbstractObject getValue() {
+            return value;
+        }
+
+        /**
+         * Changes the value in the map as well as in this entry.
+         */
+        @Override
+        public AbstractObject setValue(AbstractObject value) {
+            AbstractObject previous = this.value;
+            put(key, value);
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry && key.equals(((Map.Entry<?, ?>) o).getKey()) &&
+                    Objects.equals(value, ((Map.Entry<?, ?>) o).getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
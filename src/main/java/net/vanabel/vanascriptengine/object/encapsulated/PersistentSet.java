@@ -0,0 +1,490 @@
+package net.vanabel.vanascriptengine.object.encapsulated;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set stored in a hash array mapped trie. Adding or removing an object returns a new set in O(log32 n)
+ * that shares every untouched node with the old one. Sets never change once created, and reach their nodes only
+ * through final fields, so they can be shared across threads freely. Many objects are best added through a
+ * {@link Builder}, which changes the nodes it created itself in place instead of copying them.
+ */
+final class PersistentSet extends AbstractSet<AbstractObject> {
+
+    final static PersistentSet EMPTY = new PersistentSet(Node.EMPTY, 0);
+
+    // 5 bits of the hash are used per level; below the last level, objects with equal hashes are kept in a list
+    private final static int BITS = 5;
+    private final static int MASK = (1 << BITS) - 1;
+    private final static int MAX_SHIFT = 30;
+    private final static int MAX_DEPTH = 8;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    private static int hash(Object o) {
+        int h = o.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && root.contains(o, hash(o), 0);
+    }
+
+    /**
+     * Returns a set that also holds an object, or this set if it already does.
+     */
+    PersistentSet with(AbstractObject o) {
+        if (o == null) {
+            throw new IllegalArgumentException("Cannot add null to a persistent set!");
+        }
+        boolean[] changed = new boolean[1];
+        Node updated = root.with(o, hash(o), 0, null, changed);
+        return changed[0] ? new PersistentSet(updated, size + 1) : this;
+    }
+
+    /**
+     * Returns a set without an object, or this set if it does not hold it.
+     */
+    PersistentSet without(Object o) {
+        if (o == null) {
+            return this;
+        }
+        boolean[] changed = new boolean[1];
+        Node updated = root.without(o, hash(o), 0, null, changed);
+        if (!changed[0]) {
+            return this;
+        }
+        return updated == null ? EMPTY : new PersistentSet(updated, size - 1);
+    }
+
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Returns a set that starts with the objects of this set and can be changed in place, in constant time.
+     */
+    Transient toTransient() {
+        return new Transient(root, size);
+    }
+
+    @Override
+    public Iterator<AbstractObject> iterator() {
+        return new NodeIterator(root);
+    }
+
+    /**
+     * Collects objects into a new set. Nodes created by the builder are changed in place until {@link #build()} is
+     * called, after which the builder cannot be used again.
+     */
+    static final class Builder {
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(PersistentSet set) {
+            this.root = set.root;
+            this.size = set.size;
+        }
+
+        private Object ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("This builder has already been built!");
+            }
+            return edit;
+        }
+
+        boolean add(AbstractObject o) {
+            if (o == null) {
+                throw new IllegalArgumentException("Cannot add null to a persistent set!");
+            }
+            boolean[] changed = new boolean[1];
+            root = root.with(o, hash(o), 0, ensureEditable(), changed);
+            if (changed[0]) {
+                size++;
+            }
+            return changed[0];
+        }
+
+        boolean remove(Object o) {
+            if (o == null) {
+                return false;
+            }
+            boolean[] changed = new boolean[1];
+            Node updated = root.without(o, hash(o), 0, ensureEditable(), changed);
+            if (changed[0]) {
+                root = updated == null ? Node.EMPTY : updated;
+                size--;
+            }
+            return changed[0];
+        }
+
+        int size() {
+            return size;
+        }
+
+        PersistentSet build() {
+            ensureEditable();
+            edit = null;
+            return size == 0 ? EMPTY : new PersistentSet(root, size);
+        }
+    }
+
+    /**
+     * Walks the objects under a node. The nodes must not change while they are walked.
+     */
+    private static class NodeIterator implements Iterator<AbstractObject> {
+        // The path from the root to the node being iterated, with the next entry index of each node on it
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] indexes = new int[MAX_DEPTH];
+        private int depth = 0;
+        private AbstractObject next;
+
+        NodeIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                int index = indexes[depth];
+                if (index == node.entries.length) {
+                    depth--;
+                    continue;
+                }
+                indexes[depth]++;
+                Object entry = node.entries[index];
+                if (entry instanceof Node) {
+                    depth++;
+                    nodes[depth] = (Node) entry;
+                    indexes[depth] = 0;
+                }
+                else {
+                    next = (AbstractObject) entry;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public AbstractObject next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            AbstractObject current = next;
+            advance();
+            return current;
+        }
+    }
+
+    /**
+     * A set in the same trie that is changed in place, like a {@link Builder} that is never built. {@link #fork()}
+     * and {@link #toPersistent()} share its nodes in constant time; from then on, neither side changes a shared node
+     * in place, and each change copies only the nodes on its path.
+     */
+    static final class Transient extends AbstractSet<AbstractObject> {
+        private Edit edit = new Edit();
+        private Node root;
+        private int size;
+
+        Transient() {
+            this(Node.EMPTY, 0);
+        }
+
+        private Transient(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * Returns the token that owns the nodes this set may change in place, replacing it once it has been shared.
+         */
+        private Edit editable() {
+            if (edit.shared) {
+                edit = new Edit();
+            }
+            return edit;
+        }
+
+        /**
+         * Returns a set with the same objects that can be changed without affecting this one, in constant time.
+         */
+        Transient fork() {
+            edit.shared = true;
+            return new Transient(root, size);
+        }
+
+        /**
+         * Returns a persistent set of the current objects in constant time. Later changes to this set are not seen by
+         * it.
+         */
+        PersistentSet toPersistent() {
+            edit.shared = true;
+            return size == 0 ? EMPTY : new PersistentSet(root, size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && root.contains(o, hash(o), 0);
+        }
+
+        @Override
+        public boolean add(AbstractObject o) {
+            if (o == null) {
+                throw new IllegalArgumentException("Cannot add null to a set!");
+            }
+            boolean[] changed = new boolean[1];
+            root = root.with(o, hash(o), 0, editable(), changed);
+            if (changed[0]) {
+                size++;
+            }
+            return changed[0];
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) {
+                return false;
+            }
+            boolean[] changed = new boolean[1];
+            Node updated = root.without(o, hash(o), 0, editable(), changed);
+            if (changed[0]) {
+                root = updated == null ? Node.EMPTY : updated;
+                size--;
+            }
+            return changed[0];
+        }
+
+        @Override
+        public void clear() {
+            root = Node.EMPTY;
+            size = 0;
+        }
+
+        @Override
+        public Iterator<AbstractObject> iterator() {
+            return new NodeIterator(root) {
+                private AbstractObject last;
+                private boolean detached;
+
+                @Override
+                public AbstractObject next() {
+                    return last = super.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    if (!detached) {
+                        // Share the walked nodes, so that removing copies them instead of changing them under the walk
+                        edit.shared = true;
+                        detached = true;
+                    }
+                    Transient.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+    }
+
+    /**
+     * The owner of the nodes a {@link Transient} may change in place. Once shared, its nodes never change again.
+     */
+    private final static class Edit {
+        volatile boolean shared;
+    }
+
+    /**
+     * A level of the trie. Each entry is either an object or a node for the next level. In a node of the last level,
+     * the entries are a list of objects whose hashes are equal.
+     */
+    private final static class Node {
+        final static Node EMPTY = new Node(null, 0, new Object[0], false);
+
+        // The builder that created this node, which may change it in place, or null if it can never change
+        final Object edit;
+        final boolean collision;
+        // One bit per hash fragment with an entry; the entries are in the order of their bits
+        int bitmap;
+        Object[] entries;
+
+        Node(Object edit, int bitmap, Object[] entries, boolean collision) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.entries = entries;
+            this.collision = collision;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        boolean contains(Object o, int hash, int shift) {
+            if (collision) {
+                return indexInList(o) != -1;
+            }
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return false;
+            }
+            Object entry = entries[index(bit)];
+            return entry instanceof Node ? ((Node) entry).contains(o, hash, shift + BITS) : entry.equals(o);
+        }
+
+        private int indexInList(Object o) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].equals(o)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns this node changed in place if the editor owns it, or a changed copy otherwise.
+         */
+        private Node withEntries(Object edit, int bitmap, Object[] entries) {
+            if (edit != null && edit == this.edit) {
+                this.bitmap = bitmap;
+                this.entries = entries;
+                return this;
+            }
+            return new Node(edit, bitmap, entries, collision);
+        }
+
+        private Node withEntry(Object edit, int index, Object entry) {
+            if (edit != null && edit == this.edit) {
+                entries[index] = entry;
+                return this;
+            }
+            Object[] updated = entries.clone();
+            updated[index] = entry;
+            return new Node(edit, bitmap, updated, collision);
+        }
+
+        Node with(AbstractObject o, int hash, int shift, Object edit, boolean[] changed) {
+            if (collision) {
+                if (indexInList(o) != -1) {
+                    return this;
+                }
+                changed[0] = true;
+                Object[] updated = Arrays.copyOf(entries, entries.length + 1);
+                updated[entries.length] = o;
+                return withEntries(edit, 0, updated);
+            }
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                changed[0] = true;
+                Object[] updated = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, updated, 0, index);
+                updated[index] = o;
+                System.arraycopy(entries, index, updated, index + 1, entries.length - index);
+                return withEntries(edit, bitmap | bit, updated);
+            }
+            Object entry = entries[index];
+            if (entry instanceof Node) {
+                Node child = ((Node) entry).with(o, hash, shift + BITS, edit, changed);
+                return child == entry ? this : withEntry(edit, index, child);
+            }
+            if (entry.equals(o)) {
+                return this;
+            }
+            changed[0] = true;
+            return withEntry(edit, index, pair(edit, entry, hash(entry), o, hash, shift + BITS));
+        }
+
+        private static Node pair(Object edit, Object a, int hashA, Object b, int hashB, int shift) {
+            if (shift > MAX_SHIFT) {
+                return new Node(edit, 0, new Object[] {a, b}, true);
+            }
+            int bitA = bit(hashA, shift);
+            int bitB = bit(hashB, shift);
+            if (bitA == bitB) {
+                return new Node(edit, bitA, new Object[] {pair(edit, a, hashA, b, hashB, shift + BITS)}, false);
+            }
+            // Compared unsigned, since the bit of the last fragment is the sign bit
+            return new Node(edit, bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ?
+                    new Object[] {a, b} :
+                    new Object[] {b, a}, false);
+        }
+
+        /**
+         * @return The node without the object, or null if nothing would be left in it.
+         */
+        Node without(Object o, int hash, int shift, Object edit, boolean[] changed) {
+            if (collision) {
+                int index = indexInList(o);
+                if (index == -1) {
+                    return this;
+                }
+                changed[0] = true;
+                return entries.length == 1 ? null : withEntries(edit, 0, removeAt(entries, index));
+            }
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object entry = entries[index];
+            if (entry instanceof Node) {
+                Node child = ((Node) entry).without(o, hash, shift + BITS, edit, changed);
+                if (child == entry) {
+                    return this;
+                }
+                if (child != null) {
+                    // A child left with a single object is replaced by the object, so equal sets have equal tries
+                    return child.entries.length == 1 && !(child.entries[0] instanceof Node) ?
+                            withEntry(edit, index, child.entries[0]) :
+                            withEntry(edit, index, child);
+                }
+            }
+            else if (!entry.equals(o)) {
+                return this;
+            }
+            changed[0] = true;
+            return bitmap == bit ? null : withEntries(edit, bitmap & ~bit, removeAt(entries, index));
+        }
+
+        private static Object[] removeAt(Object[] entries, int index) {
+            Object[] updated = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, updated, 0, index);
+            System.arraycopy(entries, index + 1, updated, index, entries.length - index - 1);
+            return updated;
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package net.vanabel.vanascriptengine.object.encapsulated;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
+import net.vanabel.vanascriptengine.object.datatype.CharDataType;
+import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.object.datatype.NumberDataType;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Backings for a {@link SetObject} restricted to a single data type, which store each element as a primitive instead
+ * of an object in a hash set. Elements are only created as objects when the set is iterated, and are compared by
+ * value, so two objects of the same number are the same element.
+ */
+final class PrimitiveSets {
+
+    private PrimitiveSets() {}
+
+    /**
+     * Returns an empty backing for a set restricted to a type, or null if the type has no primitive backing.
+     */
+    static Backing forType(Class<? extends AbstractObject> clss) {
+        if (clss == IntegerDataType.class) {
+            return new Integers();
+        }
+        if (clss == NumberDataType.class) {
+            return new Numbers();
+        }
+        if (clss == CharDataType.class) {
+            return new Chars();
+        }
+        if (clss == BooleanDataType.class) {
+            return new Booleans();
+        }
+        return null;
+    }
+
+    abstract static class Backing extends AbstractSet<AbstractObject> {
+
+        /**
+         * Returns whether an object can be stored in this backing. Only objects of exactly the backed type can, since
+         * subclasses would be lost when the element is created again.
+         */
+        abstract boolean accepts(Object o);
+
+        abstract Backing copy();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Open-addressing table of 64-bit keys, for integers and numbers
+
+    private abstract static class LongTable extends Backing {
+        // Free and removed slots are marked with these keys; elements with the same keys are tracked by flags instead
+        private final static long FREE = 0L;
+        private final static long REMOVED = Long.MIN_VALUE;
+        private final static int MIN_CAPACITY = 8;
+
+        private long[] keys = new long[MIN_CAPACITY];
+        // The number of elements, and the number of slots that are not free, including removed ones
+        private int size, used;
+        private boolean hasFree, hasRemoved;
+        private int modCount;
+
+        abstract long encode(AbstractObject o);
+
+        abstract AbstractObject decode(long key);
+
+        abstract LongTable newEmpty();
+
+        @Override
+        Backing copy() {
+            LongTable copy = newEmpty();
+            copy.keys = keys.clone();
+            copy.size = size;
+            copy.used = used;
+            copy.hasFree = hasFree;
+            copy.hasRemoved = hasRemoved;
+            return copy;
+        }
+
+        private static int slot(long key, int mask) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return accepts(o) && containsKey(encode((AbstractObject) o));
+        }
+
+        @Override
+        public boolean add(AbstractObject o) {
+            if (!accepts(o)) {
+                throw new IllegalArgumentException("Cannot store " + o + " in a set of " + getClass().getSimpleName() + "!");
+            }
+            return addKey(encode(o));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return accepts(o) && removeKey(encode((AbstractObject) o));
+        }
+
+        @Override
+        public void clear() {
+            keys = new long[MIN_CAPACITY];
+            size = used = 0;
+            hasFree = hasRemoved = false;
+            modCount++;
+        }
+
+        private boolean containsKey(long key) {
+            if (key == FREE) {
+                return hasFree;
+            }
+            if (key == REMOVED) {
+                return hasRemoved;
+            }
+            long[] table = keys;
+            int mask = table.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                long current = table[i];
+                if (current == key) {
+                    return true;
+                }
+                if (current == FREE) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean addKey(long key) {
+            if (key == FREE || key == REMOVED) {
+                boolean added = key == FREE ? !hasFree : !hasRemoved;
+                if (added) {
+                    if (key == FREE) {
+                        hasFree = true;
+                    }
+                    else {
+                        hasRemoved = true;
+                    }
+                    size++;
+                    modCount++;
+                }
+                return added;
+            }
+            int mask = keys.length - 1;
+            int removedSlot = -1;
+            int i = slot(key, mask);
+            for (; ; i = (i + 1) & mask) {
+                long current = keys[i];
+                if (current == key) {
+                    return false;
+                }
+                if (current == FREE) {
+                    break;
+                }
+                if (current == REMOVED && removedSlot == -1) {
+                    removedSlot = i;
+                }
+            }
+            if (removedSlot != -1) {
+                keys[removedSlot] = key;
+            }
+            else {
+                keys[i] = key;
+                used++;
+            }
+            size++;
+            modCount++;
+            // Keep at least a quarter of the slots free, so that probes stay short and always end
+            if (used > keys.length - (keys.length >>> 2)) {
+                rehash();
+            }
+            return true;
+        }
+
+        private boolean removeKey(long key) {
+            if (key == FREE || key == REMOVED) {
+                boolean removed = key == FREE ? hasFree : hasRemoved;
+                if (removed) {
+                    if (key == FREE) {
+                        hasFree = false;
+                    }
+                    else {
+                        hasRemoved = false;
+                    }
+                    size--;
+                    modCount++;
+                }
+                return removed;
+            }
+            long[] table = keys;
+            int mask = table.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                long current = table[i];
+                if (current == key) {
+                    // Marked rather than emptied, so that iterators and later probes are not disturbed
+                    table[i] = REMOVED;
+                    size--;
+                    modCount++;
+                    return true;
+                }
+                if (current == FREE) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Moves every element into a table at most half full, dropping removed slots.
+         */
+        private void rehash() {
+            int capacity = MIN_CAPACITY;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            long[] old = keys;
+            long[] table = new long[capacity];
+            int mask = capacity - 1;
+            int count = 0;
+            for (long key : old) {
+                if (key != FREE && key != REMOVED) {
+                    int i = slot(key, mask);
+                    while (table[i] != FREE) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = key;
+                    count++;
+                }
+            }
+            keys = table;
+            used = count;
+        }
+
+        @Override
+        public Iterator<AbstractObject> iterator() {
+            return new Iterator<AbstractObject>() {
+                // Slots of the table, followed by the elements tracked by flags
+                private final long[] table = keys;
+                private int index = -1;
+                private int next = advance(0);
+                private long lastKey;
+                private boolean canRemove;
+                private int expectedModCount = modCount;
+
+                private int advance(int from) {
+                    for (int i = from; i < table.length; i++) {
+                        if (table[i] != FREE && table[i] != REMOVED) {
+                            return i;
+                        }
+                    }
+                    if (from <= table.length && hasFree) {
+                        return table.length;
+                    }
+                    if (from <= table.length + 1 && hasRemoved) {
+                        return table.length + 1;
+                    }
+                    return -1;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != -1;
+                }
+
+                @Override
+                public AbstractObject next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next == -1) {
+                        throw new NoSuchElementException();
+                    }
+                    index = next;
+                    lastKey = index < table.length ? table[index] : index == table.length ? FREE : REMOVED;
+                    canRemove = true;
+                    next = advance(index + 1);
+                    return decode(lastKey);
+                }
+
+                @Override
+                public void remove() {
+                    if (!canRemove) {
+                        throw new IllegalStateException();
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    removeKey(lastKey);
+                    expectedModCount = modCount;
+                    canRemove = false;
+                }
+            };
+        }
+    }
+
+    private final static class Integers extends LongTable {
+        @Override
+        boolean accepts(Object o) {
+            return o != null && o.getClass() == IntegerDataType.class;
+        }
+
+        @Override
+        long encode(AbstractObject o) {
+            return ((IntegerDataType) o).getValue();
+        }
+
+        @Override
+        AbstractObject decode(long key) {
+            return IntegerDataType.valueOf(key);
+        }
+
+        @Override
+        LongTable newEmpty() {
+            return new Integers();
+        }
+    }
+
+    private final static class Numbers extends LongTable {
+        @Override
+        boolean accepts(Object o) {
+            return o != null && o.getClass() == NumberDataType.class;
+        }
+
+        @Override
+        long encode(AbstractObject o) {
+            // Compared like Double.equals: every NaN is the same element, while 0.0 and -0.0 are not
+            return Double.doubleToLongBits(((NumberDataType) o).getValue());
+        }
+
+        @Override
+        AbstractObject decode(long key) {
+            return new NumberDataType(Double.longBitsToDouble(key));
+        }
+
+        @Override
+        LongTable newEmpty() {
+            return new Numbers();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Bitsets, for characters and booleans
+
+    private abstract static class Bits extends Backing {
+        private final static long[] NO_WORDS = new long[0];
+
+        // Only as long as needed for the highest element
+        private long[] words = NO_WORDS;
+        private int size;
+        private int modCount;
+
+        abstract int encode(AbstractObject o);
+
+        abstract AbstractObject decode(int bit);
+
+        abstract Bits newEmpty();
+
+        @Override
+        Backing copy() {
+            Bits copy = newEmpty();
+            copy.words = words.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        private boolean get(int bit) {
+            int word = bit >>> 6;
+            return word < words.length && (words[word] & (1L << bit)) != 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return accepts(o) && get(encode((AbstractObject) o));
+        }
+
+        @Override
+        public boolean add(AbstractObject o) {
+            if (!accepts(o)) {
+                throw new IllegalArgumentException("Cannot store " + o + " in a set of " + getClass().getSimpleName() + "!");
+            }
+            int bit = encode(o);
+            if (get(bit)) {
+                return false;
+            }
+            int word = bit >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, word + 1);
+            }
+            words[word] |= 1L << bit;
+            size++;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return accepts(o) && clearBit(encode((AbstractObject) o));
+        }
+
+        private boolean clearBit(int bit) {
+            if (!get(bit)) {
+                return false;
+            }
+            words[bit >>> 6] &= ~(1L << bit);
+            size--;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            words = NO_WORDS;
+            size = 0;
+            modCount++;
+        }
+
+        @Override
+        public Iterator<AbstractObject> iterator() {
+            return new Iterator<AbstractObject>() {
+                private int next = nextBit(0);
+                private int last = -1;
+                private int expectedModCount = modCount;
+
+                private int nextBit(int from) {
+                    int word = from >>> 6;
+                    if (word >= words.length) {
+                        return -1;
+                    }
+                    long bits = words[word] & (-1L << from);
+                    while (true) {
+                        if (bits != 0) {
+                            return (word << 6) + Long.numberOfTrailingZeros(bits);
+                        }
+                        if (++word == words.length) {
+                            return -1;
+                        }
+                        bits = words[word];
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != -1;
+                }
+
+                @Override
+                public AbstractObject next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next == -1) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = nextBit(last + 1);
+                    return decode(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == -1) {
+                        throw new IllegalStateException();
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    clearBit(last);
+                    expectedModCount = modCount;
+                    last = -1;
+                }
+            };
+        }
+    }
+
+    private final static class Chars extends Bits {
+        @Override
+        boolean accepts(Object o) {
+            return o != null && o.getClass() == CharDataType.class;
+        }
+
+        @Override
+        int encode(AbstractObject o) {
+            return ((CharDataType) o).getValue();
+        }
+
+        @Override
+        AbstractObject decode(int bit) {
+            return CharDataType.valueOf((char) bit);
+        }
+
+        @Override
+        Bits newEmpty() {
+            return new Chars();
+        }
+    }
+
+    private final static class Booleans extends Bits {
+        @Override
+        boolean accepts(Object o) {
+            return o instanceof BooleanDataType;
+        }
+
+        @Override
+        int encode(AbstractObject o) {
+            return ((BooleanDataType) o).getValue() ? 1 : 0;
+        }
+
+        @Override
+        AbstractObject decode(int bit) {
+            return BooleanDataType.getForBoolean(bit == 1);
+        }
+
+        @Override
+        Bits newEmpty() {
+            return new Booleans();
+        }
+    }
+}
@@ -5,11 +5,13 @@ import net.vanabel.vanascriptengine.object.ObjectRegistry;
 import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
 import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
+import net.vanabel.vanascriptengine.object.datatype.CharDataType;
 import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.object.datatype.NumberDataType;
 import net.vanabel.vanascriptengine.tag.attribute.Attribute;
+import net.vanabel.vanascriptengine.util.validator.ObjectValidator;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -23,7 +25,7 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
 
     static {
         registerAttributes(
-                (Attribute.DirectProcessor<SetObject>) (object, attribute) -> new IntegerDataType(object.size()),
+                (Attribute.DirectProcessor<SetObject>) (object, attribute) -> IntegerDataType.valueOf(object.size()),
                 "size"
         );
         registerAttributes(
@@ -31,7 +33,7 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
                 "is_empty", "isEmpty"
         );
         registerAttributes(
-                (object, attribute) -> {
+                (Attribute.DirectProcessor<SetObject>) (object, attribute) -> {
                     Class<? extends AbstractObject> clss = object.clss;
                     if (clss == AbstractObject.class) {
                         return new TextObject("none");
@@ -51,18 +53,19 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
                 }, "contains"
         );
         registerAttributes(
-                (object, attribute) -> {
+                (Attribute.DirectProcessor<SetObject>) (object, attribute) -> {
                     if (!attribute.hasContext()) {
                         // TODO: Debug
                         return null;
                     }
-                    AbstractObject addObj = ObjectRegistry.constructForClass(attribute.getContext().getRaw(), object.clss);
+                    AbstractObject addObj = object.clss == AbstractObject.class ?
+                            attribute.getContext().getRawAsBestMatch() :
+                            ObjectRegistry.constructForClass(attribute.getContext().getRaw(), object.clss);
                     if (addObj == null) {
                         // TODO: Debug
                         return object;
                     }
-                    object.add(addObj);
-                    return object;
+                    return object.plus(addObj);
                 }, "add"
         );
     }
@@ -79,27 +82,232 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
         return false;
     }
 
+    /**
+     * Returns a set of the given objects that cannot be changed. Its clones can be.
+     */
+    public static SetObject unmodifiableOf(Class<? extends AbstractObject> clss,
+                                           Collection<? extends AbstractObject> objects) {
+        SetObject set = new SetObject(clss, objects);
+        return new SetObject(clss, set.data, true);
+    }
+
+    /**
+     * Returns a persistent set of the given objects.
+     * @see #isPersistent()
+     */
+    public static SetObject persistentOf(Class<? extends AbstractObject> clss,
+                                         Collection<? extends AbstractObject> objects) {
+        return persistentBuilder(clss).addAll(objects).build();
+    }
+
+    public static Builder persistentBuilder(Class<? extends AbstractObject> clss) {
+        return new Builder(clss, PersistentSet.EMPTY);
+    }
+
     private final Class<? extends AbstractObject> clss;
-    private final Set<AbstractObject> data;
+    // A PersistentSet if this set is persistent, or otherwise a PersistentSet.Transient or a primitive backing, which
+    // is replaced by a PersistentSet.Transient if an object it cannot store is added
+    private Set<AbstractObject> data;
+    private final boolean readOnly;
 
     public SetObject() {
         this(AbstractObject.class);
     }
 
+    /**
+     * Creates an empty set restricted to a type. Sets restricted to {@link IntegerDataType}, {@link NumberDataType},
+     * {@link CharDataType} or {@link BooleanDataType} store their elements as primitives.
+     */
     public SetObject(Class<? extends AbstractObject> clss) {
+        this.clss = ObjectValidator.objectIsNonNull(clss, "A set restriction must be provided!");
+        Set<AbstractObject> backing = PrimitiveSets.forType(clss);
+        this.data = backing != null ? backing : new PersistentSet.Transient();
+        this.readOnly = false;
+    }
+
+    public SetObject(Class<? extends AbstractObject> clss, Collection<? extends AbstractObject> objects) {
+        this(clss);
+        addAll(objects);
+    }
+
+    private SetObject(Class<? extends AbstractObject> clss, Set<AbstractObject> data, boolean readOnly) {
         this.clss = clss;
-        this.data = new HashSet<>();
+        this.data = data;
+        this.readOnly = readOnly;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Creates a set of the given objects, restricted to their class if they all share one.
+     */
     public SetObject(Set<? extends AbstractObject> set) {
-        data = (Set<AbstractObject>) set;
-        try {
-            clss = (Class<AbstractObject>) Class.forName(getClass().getField("data").getGenericType().getTypeName());
+        this(commonClass(set), set);
+    }
+
+    private static Class<? extends AbstractObject> commonClass(Collection<? extends AbstractObject> objects) {
+        Class<? extends AbstractObject> common = null;
+        for (AbstractObject obj : objects) {
+            if (obj == null || (common != null && obj.getClass() != common)) {
+                return AbstractObject.class;
+            }
+            common = obj.getClass();
+        }
+        return common == null ? AbstractObject.class : common;
+    }
+
+    /**
+     * Returns a set with the same objects that can be changed. Persistent sets return themselves, since they never
+     * change.
+     * @see #copyOnWrite()
+     */
+    @Override
+    public SetObject clone() {
+        return isPersistent() ? this : copyOnWrite();
+    }
+
+    /**
+     * Returns a set with the same objects that can be changed without affecting this one. Sets of objects share their
+     * trie with the new set in constant time, after which each set copies only the nodes it changes; sets stored as
+     * primitives copy their tables.
+     */
+    @Override
+    public SetObject copyOnWrite() {
+        return new SetObject(clss, forkData(), false);
+    }
+
+    private Set<AbstractObject> forkData() {
+        if (data instanceof PersistentSet) {
+            return ((PersistentSet) data).toTransient();
+        }
+        if (data instanceof PersistentSet.Transient) {
+            return ((PersistentSet.Transient) data).fork();
+        }
+        return ((PrimitiveSets.Backing) data).copy();
+    }
+
+    /**
+     * Returns whether this set is persistent. A persistent set never changes and cannot be changed; instead,
+     * {@link #plus(AbstractObject)} and {@link #minus(Object)} return new sets in O(log32 n) that share most of their
+     * structure with it. Its objects are never changed after it is built, so once it has been safely published, such
+     * as through a volatile field or a concurrent collection, any thread can read it without locking.
+     * @see #persistentOf(Class, Collection)
+     * @see #persistentBuilder(Class)
+     */
+    public boolean isPersistent() {
+        return readOnly && data instanceof PersistentSet;
+    }
+
+    /**
+     * Returns a persistent set of the objects in this set.
+     */
+    public SetObject toPersistent() {
+        if (isPersistent()) {
+            return this;
+        }
+        if (data instanceof PersistentSet.Transient) {
+            return new SetObject(clss, ((PersistentSet.Transient) data).toPersistent(), true);
+        }
+        return persistentBuilder(clss).addAll(data).build();
+    }
+
+    /**
+     * Returns a builder of a persistent set that starts with the objects in this set. For a persistent set, nothing
+     * is copied until the builder changes it.
+     */
+    public Builder toBuilder() {
+        if (isPersistent()) {
+            return new Builder(clss, (PersistentSet) data);
+        }
+        if (data instanceof PersistentSet.Transient) {
+            return new Builder(clss, ((PersistentSet.Transient) data).toPersistent());
+        }
+        return persistentBuilder(clss).addAll(data);
+    }
+
+    /**
+     * Returns a set that also holds an object, leaving this set unchanged. Persistent sets share their structure with
+     * the new set; other sets change a {@link #copyOnWrite()} of themselves.
+     * @return The new set, or this set if it already holds the object.
+     */
+    public SetObject plus(AbstractObject o) {
+        if (isPersistent()) {
+            PersistentSet updated = ((PersistentSet) data).with(o);
+            return updated == data ? this : new SetObject(clss, updated, true);
+        }
+        if (data.contains(o)) {
+            return this;
+        }
+        SetObject copy = copyOnWrite();
+        copy.add(o);
+        return copy;
+    }
+
+    /**
+     * Returns a set without an object, leaving this set unchanged.
+     * @return The new set, or this set if it does not hold the object.
+     * @see #plus(AbstractObject)
+     */
+    public SetObject minus(Object o) {
+        if (isPersistent()) {
+            PersistentSet updated = ((PersistentSet) data).without(o);
+            return updated == data ? this : new SetObject(clss, updated, true);
+        }
+        if (!data.contains(o)) {
+            return this;
+        }
+        SetObject copy = copyOnWrite();
+        copy.remove(o);
+        return copy;
+    }
+
+    /**
+     * Returns a set of the current objects that cannot be changed. Later changes to this set are not seen by the
+     * snapshot. For sets of objects this takes constant time.
+     */
+    public SetObject snapshot() {
+        return readOnly ? this : new SetObject(clss, forkData(), true);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private Set<AbstractObject> mutableData() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Cannot change an unmodifiable set!");
         }
-        catch (Exception e) {
-            throw new RuntimeException("Unexpected error while constructing a SetObject!");
+        return data;
+    }
+
+    /**
+     * Returns the objects of this set ready to be changed to hold the given objects, moving them out of a primitive
+     * backing that cannot store one of them.
+     */
+    private Set<AbstractObject> mutableDataFor(Collection<? extends AbstractObject> objects) {
+        Set<AbstractObject> current = mutableData();
+        if (current instanceof PrimitiveSets.Backing) {
+            for (AbstractObject obj : objects) {
+                if (!((PrimitiveSets.Backing) current).accepts(obj)) {
+                    return unspecializedData();
+                }
+            }
+        }
+        return current;
+    }
+
+    private Set<AbstractObject> mutableDataFor(AbstractObject object) {
+        Set<AbstractObject> current = mutableData();
+        if (current instanceof PrimitiveSets.Backing && !((PrimitiveSets.Backing) current).accepts(object)) {
+            return unspecializedData();
         }
+        return current;
+    }
+
+    private Set<AbstractObject> unspecializedData() {
+        // TODO: Debug
+        Set<AbstractObject> objects = new PersistentSet.Transient();
+        objects.addAll(data);
+        data = objects;
+        return data;
     }
 
     @Override
@@ -141,7 +349,21 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
 
     @Override
     public Iterator<AbstractObject> iterator() {
-        return data.iterator();
+        Iterator<AbstractObject> it = data.iterator();
+        if (!readOnly) {
+            return it;
+        }
+        return new Iterator<AbstractObject>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public AbstractObject next() {
+                return it.next();
+            }
+        };
     }
 
     @Override
@@ -156,12 +378,12 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
 
     @Override
     public boolean add(AbstractObject o) {
-        return data.add(o);
+        return mutableDataFor(o).add(o);
     }
 
     @Override
     public boolean remove(Object o) {
-        return data.remove(o);
+        return mutableData().remove(o);
     }
 
     @Override
@@ -171,21 +393,60 @@ public class SetObject extends EncapsulatedObject implements Set<AbstractObject>
 
     @Override
     public boolean addAll(Collection<? extends AbstractObject> c) {
-        return data.addAll(c);
+        return mutableDataFor(c).addAll(c);
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        return data.retainAll(c);
+        return mutableData().retainAll(c);
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        return data.removeAll(c);
+        return mutableData().removeAll(c);
     }
 
     @Override
     public void clear() {
-        data.clear();
+        mutableData().clear();
+    }
+
+    /**
+     * Collects objects into a persistent set, changing the parts of it built so far in place instead of copying them.
+     * A builder can only be built once.
+     */
+    public static final class Builder {
+        private final Class<? extends AbstractObject> clss;
+        private final PersistentSet.Builder builder;
+
+        private Builder(Class<? extends AbstractObject> clss, PersistentSet set) {
+            this.clss = ObjectValidator.objectIsNonNull(clss, "A set restriction must be provided!");
+            this.builder = set.toBuilder();
+        }
+
+        public Builder add(AbstractObject o) {
+            builder.add(o);
+            return this;
+        }
+
+        public Builder addAll(Collection<? extends AbstractObject> objects) {
+            for (AbstractObject o : objects) {
+                builder.add(o);
+            }
+            return this;
+        }
+
+        public Builder remove(Object o) {
+            builder.remove(o);
+            return this;
+        }
+
+        public int size() {
+            return builder.size();
+        }
+
+        public SetObject build() {
+            return new SetObject(clss, builder.build(), true);
+        }
     }
 }
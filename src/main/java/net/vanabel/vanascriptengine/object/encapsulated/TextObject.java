@@ -4,14 +4,22 @@ import net.vanabel.vanascriptengine.object.annotation.ObjectConstructor;
 import net.vanabel.vanascriptengine.object.annotation.ObjectMatcher;
 import net.vanabel.vanascriptengine.object.datatype.BooleanDataType;
 import net.vanabel.vanascriptengine.object.datatype.IntegerDataType;
+import net.vanabel.vanascriptengine.tag.attribute.ArgumentSchema;
 import net.vanabel.vanascriptengine.tag.attribute.Attribute;
 import net.vanabel.vanascriptengine.util.conversion.StringUtils;
 
+import java.util.Objects;
+
 public class TextObject extends EncapsulatedObject {
 
     public final static AttributeHandler<TextObject> ATTRIBUTE_HANDLER = new AttributeHandler<>();
     public final static TextObject EMPTY = new TextObject("");
 
+    private final static ArgumentSchema SUBSTRING_ARGUMENTS = ArgumentSchema.builder()
+            .parameter("start", IntegerDataType.class, IntegerDataType::construct)
+            .parameter("end", IntegerDataType.class, IntegerDataType::construct)
+            .build();
+
     public static void registerAttributes(Attribute.Processor<TextObject> processor, String... names) {
         ATTRIBUTE_HANDLER.registerAttributes(processor, names);
     }
@@ -24,26 +32,32 @@ public class TextObject extends EncapsulatedObject {
         );
         registerAttributes(
                 (Attribute.DirectProcessor<TextObject>) (object, attribute) ->
-                        new IntegerDataType(object.value.length()),
+                        IntegerDataType.valueOf(object.value.length()),
                 "length"
         );
-        registerAttributes(
-                (Attribute.DirectProcessor<TextObject>) (object, attribute) -> {
+        ATTRIBUTE_HANDLER.registerAttributes(
+                SUBSTRING_ARGUMENTS,
+                (Attribute.DirectArgumentProcessor<TextObject>) (object, attribute, arguments) -> {
                         if (!attribute.hasContext()) {
                             // TODO: Debug
                             return null;
                         }
-                        Integer start = StringUtils.toInteger(attribute.getContext().getRaw());
-                        Integer end = object.value.length();
-                        if (attribute.getContext().isMap()) {
-                            start = StringUtils.toInteger(attribute.getContext().getKeyValue("start"));
-                            end = StringUtils.toInteger(attribute.getContext().getKeyValue("end"));
-                        }
+                        IntegerDataType start = arguments.get(0, IntegerDataType.class);
+                        IntegerDataType end = arguments.isKeyed() ?
+                                arguments.get(1, IntegerDataType.class) :
+                                IntegerDataType.valueOf(object.value.length());
                         if (start == null || end == null) {
                             // TODO: Debug
                             return null;
                         }
-                        return new TextObject(object.value.substring(start, end));
+                        long startIndex = start.getValue();
+                        long endIndex = end.getValue();
+                        // Checked as longs, so that values outside the int range are rejected instead of truncated
+                        if (startIndex < 0 || endIndex > object.value.length() || startIndex > endIndex) {
+                            // TODO: Debug
+                            return null;
+                        }
+                        return new TextObject(object.value.substring((int) startIndex, (int) endIndex));
                 }, "substring", "substr"
         );
         registerAttributes(
@@ -65,7 +79,7 @@ public class TextObject extends EncapsulatedObject {
         return val.isEmpty() ? EMPTY : new TextObject(val);
     }
 
-    @ObjectMatcher
+    @ObjectMatcher( priority = Integer.MIN_VALUE )
     public static boolean matches(String val) {
         return true;
     }
@@ -76,6 +90,14 @@ public class TextObject extends EncapsulatedObject {
         this.value = value;
     }
 
+    /**
+     * Returns this object, since text never changes.
+     */
+    @Override
+    public TextObject copyOnWrite() {
+        return this;
+    }
+
     @Override
     public String getObjectTypeName() {
         return "text";
@@ -86,8 +108,25 @@ public class TextObject extends EncapsulatedObject {
         return "texts";
     }
 
+    String getValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == TextObject.class && Objects.equals(value, ((TextObject) o).value));
+    }
+
+    /**
+     * Returns the hash code of the text, so that text can be looked up by a String without creating a TextObject.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(value);
+    }
 }
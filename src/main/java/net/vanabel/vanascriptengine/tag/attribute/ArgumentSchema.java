@@ -0,0 +1,165 @@
+package net.vanabel.vanascriptengine.tag.attribute;
+
+import net.vanabel.vanascriptengine.object.AbstractObject;
+import net.vanabel.vanascriptengine.object.ObjectRegistry;
+import net.vanabel.vanascriptengine.util.conversion.StringUtils;
+import net.vanabel.vanascriptengine.util.validator.ObjectValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The arguments an attribute processor takes from the context of its component, declared when the processor is
+ * registered. A context is converted into the declared types once, the first time it is bound to a schema, and the
+ * result is kept on the context for every later evaluation.
+ * <p>
+ * A plain context, like "substring(2)", binds to the first parameter. A mapped context, like
+ * "substring(start=2;end=4)", binds each value to the parameter of the same name.
+ * @see Attribute.Handler#registerAttributes(ArgumentSchema, Attribute.ArgumentProcessor, String...)
+ */
+public final class ArgumentSchema {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final String[] names;
+    private final Class<? extends AbstractObject>[] types;
+    private final Function<String, ? extends AbstractObject>[] converters;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ArgumentSchema(Builder builder) {
+        int size = builder.names.size();
+        this.names = builder.names.toArray(new String[size]);
+        this.types = builder.types.toArray(new Class[size]);
+        this.converters = builder.converters.toArray(new Function[size]);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public Class<? extends AbstractObject> getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Returns the index of a parameter, or -1 if there is no parameter with the name.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts a context into arguments of this schema. Values that are missing or cannot be converted are left null.
+     * Processors should use {@link Attribute.Component.Context#bind(ArgumentSchema)}, which only does this once.
+     */
+    Arguments bind(Attribute.Component.Context context) {
+        AbstractObject[] values = new AbstractObject[names.length];
+        boolean keyed = context.isMap();
+        if (keyed) {
+            for (int i = 0; i < names.length; i++) {
+                values[i] = convert(i, context.getKeyValue(names[i]));
+            }
+        }
+        else if (names.length > 0) {
+            values[0] = convert(0, context.getRaw());
+        }
+        return new Arguments(this, values, keyed);
+    }
+
+    private AbstractObject convert(int index, String raw) {
+        if (raw == null) {
+            return null;
+        }
+        AbstractObject value = converters[index].apply(raw);
+        return types[index].isInstance(value) ? value : null;
+    }
+
+    /**
+     * The arguments of one context, in the order of the parameters of their schema. They never change once bound, so
+     * they are safe to share across threads.
+     */
+    public static final class Arguments {
+        private final ArgumentSchema schema;
+        private final AbstractObject[] values;
+        private final boolean keyed;
+
+        private Arguments(ArgumentSchema schema, AbstractObject[] values, boolean keyed) {
+            this.schema = schema;
+            this.values = values;
+            this.keyed = keyed;
+        }
+
+        public ArgumentSchema getSchema() {
+            return schema;
+        }
+
+        /**
+         * Returns whether these arguments were bound by name from a mapped context, rather than from a plain one.
+         */
+        public boolean isKeyed() {
+            return keyed;
+        }
+
+        public boolean has(int index) {
+            return values[index] != null;
+        }
+
+        public AbstractObject get(int index) {
+            return values[index];
+        }
+
+        public <A extends AbstractObject> A get(int index, Class<A> type) {
+            AbstractObject value = values[index];
+            return type.isInstance(value) ? type.cast(value) : null;
+        }
+
+        public AbstractObject get(String name) {
+            int index = schema.indexOf(name);
+            return index == -1 ? null : values[index];
+        }
+    }
+
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>(4);
+        private final List<Class<? extends AbstractObject>> types = new ArrayList<>(4);
+        private final List<Function<String, ? extends AbstractObject>> converters = new ArrayList<>(4);
+
+        private Builder() {}
+
+        /**
+         * Adds a parameter that is converted with {@link ObjectRegistry#constructForClass(String, Class)}, so its type
+         * must be registered.
+         */
+        public <A extends AbstractObject> Builder parameter(String name, Class<A> type) {
+            return parameter(name, type, raw -> ObjectRegistry.constructForClass(raw, type));
+        }
+
+        public <A extends AbstractObject> Builder parameter(String name, Class<A> type,
+                                                           Function<String, ? extends A> converter) {
+            name = StringUtils.enforceValidName(name);
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("There is already a parameter named \"" + name + "\"!");
+            }
+            names.add(name);
+            types.add(ObjectValidator.objectIsNonNull(type, "A parameter type must be provided!"));
+            converters.add(ObjectValidator.objectIsNonNull(converter, "A parameter converter must be provided!"));
+            return this;
+        }
+
+        public ArgumentSchema build() {
+            return new ArgumentSchema(this);
+        }
+    }
+}
@@ -4,14 +4,21 @@ import net.vanabel.vanascriptengine.object.AbstractObject;
 import net.vanabel.vanascriptengine.object.ObjectRegistry;
 import net.vanabel.vanascriptengine.object.encapsulated.TextObject;
 import net.vanabel.vanascriptengine.Parser;
+import net.vanabel.vanascriptengine.util.SymbolTable;
 import net.vanabel.vanascriptengine.util.conversion.StringUtils;
 import net.vanabel.vanascriptengine.util.validator.ArrayValidator;
 import net.vanabel.vanascriptengine.util.validator.NumberValidator;
 import net.vanabel.vanascriptengine.util.validator.ObjectValidator;
 
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Attribute implements Cloneable {
 
@@ -23,9 +30,58 @@ public class Attribute implements Cloneable {
     @FunctionalInterface
     public interface DirectProcessor<T> extends Processor<T> {}
 
+    /**
+     * A processor that receives the context of its component already converted by the {@link ArgumentSchema} it was
+     * registered with.
+     */
+    @FunctionalInterface
+    public interface ArgumentProcessor<T> {
+        AbstractObject process(T object, Attribute attribute, ArgumentSchema.Arguments arguments);
+    }
+
+    @FunctionalInterface
+    public interface DirectArgumentProcessor<T> extends ArgumentProcessor<T> {}
+
     public abstract static class Handler<T extends Attributable> {
 
-        protected final Map<String, Processor<T>> attributes = new HashMap<>();
+        // Guards changes to every handler, since a change to one is passed down to the handlers inheriting from it
+        private final static Object HIERARCHY_LOCK = new Object();
+
+        private final Handler<? super T> parent;
+        private final List<WeakReference<Handler<?>>> children = new CopyOnWriteArrayList<>();
+        // The processors registered on this handler itself, indexed by symbol id (see SymbolTable)
+        private Processor<T>[] own = newProcessorArray(0);
+        // The processors of the parent overlaid with this handler's own, replaced as a whole on every change
+        private volatile Processor<T>[] processors = newProcessorArray(0);
+        private volatile Set<String> attributeNames = Collections.emptySet();
+        // The dotted names in the dispatch table split into components, or null if there are none
+        private volatile PrefixNode<T> dottedNames;
+
+        // Incremented whenever the processors change
+        private volatile int version = 0;
+
+        public Handler() {
+            this(null);
+        }
+
+        /**
+         * Creates a handler that inherits every attribute of its parent. Attributes registered on this handler replace
+         * the parent's attributes of the same name, and extensions on this handler run before the parent's processor.
+         * Later changes to the parent are passed on to this handler.
+         */
+        public Handler(Handler<? super T> parent) {
+            this.parent = parent;
+            if (parent != null) {
+                synchronized (HIERARCHY_LOCK) {
+                    parent.children.add(new WeakReference<>(this));
+                    rebuild();
+                }
+            }
+        }
+
+        public Handler<? super T> getParent() {
+            return parent;
+        }
 
         protected static void checkForNames(String... n) {
             if (n.length == 0) {
@@ -33,78 +89,482 @@ public class Attribute implements Cloneable {
             }
         }
 
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> Processor<T>[] newProcessorArray(int length) {
+            return (Processor<T>[]) new Processor[length];
+        }
+
+        private Processor<T>[] copyForSymbols(String[] names) {
+            int max = own.length;
+            for (String name : names) {
+                max = Math.max(max, SymbolTable.intern(name) + 1);
+            }
+            return Arrays.copyOf(own, max);
+        }
+
+        /**
+         * Flattens the parent's processors and this handler's own into the dispatch table, then does the same for
+         * every handler inheriting from this one.
+         */
+        @SuppressWarnings("unchecked")
+        private void rebuild() {
+            Processor<T>[] inherited = parent == null ? null : (Processor<T>[]) parent.processors;
+            Processor<T>[] table = inherited == null ?
+                    own.clone() :
+                    Arrays.copyOf(inherited, Math.max(inherited.length, own.length));
+            if (inherited != null) {
+                for (int i = 0; i < own.length; i++) {
+                    Processor<T> processor = own[i];
+                    if (processor instanceof Chain && ((Chain<T>) processor).base == null) {
+                        // Extensions of an inherited attribute fall back to the parent's processor
+                        table[i] = Chain.of(i < inherited.length ? inherited[i] : null, ((Chain<T>) processor).extensions);
+                    }
+                    else if (processor != null) {
+                        table[i] = processor;
+                    }
+                }
+            }
+            Set<String> names = new LinkedHashSet<>();
+            PrefixNode<T> root = null;
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != null) {
+                    String name = SymbolTable.nameOf(i);
+                    names.add(name);
+                    if (name.indexOf('.') != -1) {
+                        root = PrefixNode.insert(root, name, table[i]);
+                    }
+                }
+            }
+            processors = table;
+            attributeNames = Collections.unmodifiableSet(names);
+            dottedNames = root;
+            version++;
+
+            for (WeakReference<Handler<?>> ref : children) {
+                Handler<?> child = ref.get();
+                if (child == null) {
+                    children.remove(ref);
+                }
+                else {
+                    child.rebuild();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
         public void registerAttributes(Processor<T> processor, String... names) {
             ObjectValidator.objectIsNonNull(processor, "An attribute processor must be provided!");
             names = StringUtils.enforceValidNames(names);
             checkForNames(names);
 
-            for (String name : names) {
-                if (attributes.containsKey(name)) {
-                    // TODO: Debug
-                    continue;
+            synchronized (HIERARCHY_LOCK) {
+                Processor<T>[] updated = copyForSymbols(names);
+                for (String name : names) {
+                    int symbol = SymbolTable.idOf(name);
+                    Processor<T> current = updated[symbol];
+                    if (current instanceof Chain && ((Chain<T>) current).base == null) {
+                        // Only extensions of an inherited attribute were here, so they now extend this processor
+                        updated[symbol] = Chain.of(processor, ((Chain<T>) current).extensions);
+                        continue;
+                    }
+                    if (current != null) {
+                        // TODO: Debug
+                        continue;
+                    }
+                    updated[symbol] = processor;
                 }
-                attributes.put(name, processor);
+                own = updated;
+                rebuild();
             }
         }
 
-        public void extendAttributes(Processor<T> newProcessor, String... names) {
+        /**
+         * Registers a processor that takes its arguments from the context of its component, as declared by a schema.
+         * The context is converted the first time the component is processed, not on every evaluation.
+         */
+        public void registerAttributes(ArgumentSchema schema, ArgumentProcessor<T> processor, String... names) {
+            ObjectValidator.objectIsNonNull(schema, "An argument schema must be provided!");
+            ObjectValidator.objectIsNonNull(processor, "An attribute processor must be provided!");
+            registerAttributes(processor instanceof DirectArgumentProcessor ?
+                    new DirectSchemaProcessor<>(schema, processor) :
+                    new SchemaProcessor<>(schema, processor), names);
+        }
+
+        public Extension<T> extendAttributes(Processor<T> newProcessor, String... names) {
+            return extendAttributes(newProcessor, 0, false, names);
+        }
+
+        /**
+         * Adds a processor in front of the processor registered under each name. When an attribute is processed, its
+         * extensions are tried from the highest priority to the lowest, the most recently added first among equal
+         * priorities, followed by the registered processor; the first non-null result is used. If nothing is
+         * registered under a name yet, here or on a parent, the extensions are tried alone, and a processor
+         * registered later is tried after them.
+         * @param terminal Whether a null result from this processor ends processing instead of falling back to the
+         *                 processors after it.
+         * @return The extension, which can be passed to {@link #removeExtension(Extension)}.
+         */
+        public Extension<T> extendAttributes(Processor<T> newProcessor, int priority, boolean terminal,
+                                             String... names) {
             ObjectValidator.objectIsNonNull(newProcessor, "An attribute processor must be provided!");
             names = StringUtils.enforceValidNames(names);
             checkForNames(names);
 
-            for (String name : names) {
-                if (!attributes.containsKey(name)) {
-                    // TODO: Debug
-                    registerAttributes(newProcessor, name);
+            Extension<T> extension = new Extension<>(newProcessor, priority, terminal);
+            synchronized (HIERARCHY_LOCK) {
+                Processor<T>[] updated = copyForSymbols(names);
+                for (String name : names) {
+                    int symbol = SymbolTable.idOf(name);
+                    updated[symbol] = Chain.with(updated[symbol], extension);
                 }
-                else {
-                    Processor<T> oldP = attributes.get(name);
-                    // Only preserve DirectProcessor type if both processors are DirectProcessors
-                    if (oldP instanceof DirectProcessor && newProcessor instanceof DirectProcessor) {
-                        attributes.replace(name, (DirectProcessor<T>) (object, attribute) -> {
-                            AbstractObject result = newProcessor.process(object, attribute);
-                            return result != null ? result : oldP.process(object, attribute);
-                        });
-                    }
-                    else {
-                        attributes.replace(name, (object, attribute) -> {
-                            AbstractObject result = newProcessor.process(object, attribute);
-                            return result != null ? result : oldP.process(object, attribute);
-                        });
+                own = updated;
+                rebuild();
+            }
+            return extension;
+        }
+
+        /**
+         * Removes an extension from every name of this handler it extends, leaving the other extensions in place.
+         * @return Whether the extension was found.
+         */
+        public boolean removeExtension(Extension<T> extension) {
+            synchronized (HIERARCHY_LOCK) {
+                Processor<T>[] updated = null;
+                for (int i = 0; i < own.length; i++) {
+                    Processor<T> without = Chain.without(own[i], extension);
+                    if (without != own[i]) {
+                        if (updated == null) {
+                            updated = own.clone();
+                        }
+                        updated[i] = without;
                     }
                 }
+                if (updated == null) {
+                    return false;
+                }
+                own = updated;
+                rebuild();
+                return true;
             }
         }
 
+        /**
+         * Returns the extensions of an attribute in the order they are tried, not including its registered processor.
+         */
+        public List<Extension<T>> getExtensions(String name) {
+            Processor<T> processor = getProcessorFor(name);
+            return processor instanceof Chain ?
+                    Collections.unmodifiableList(Arrays.asList(((Chain<T>) processor).extensions)) :
+                    Collections.emptyList();
+        }
+
+        /**
+         * Returns a number that changes whenever the processors of this handler change, including changes inherited
+         * from its parent, for caching results derived from the handler.
+         */
+        public int getVersion() {
+            return version;
+        }
+
         public boolean hasAttribute(String name) {
-            return attributes.containsKey(name);
+            return getProcessorFor(name) != null;
         }
 
+        /**
+         * Returns the names of all attributes of this handler, including inherited ones, in the order they were first
+         * interned. The set is immutable and only replaced when the attributes change.
+         */
         public Set<String> getAttributes() {
-            return attributes.keySet();
+            return attributeNames;
         }
 
         public Processor<T> getProcessorFor(String name) {
-            return attributes.get(name);
+            return getProcessorFor(SymbolTable.idOf(name));
+        }
+
+        /**
+         * Returns the processor registered under a symbol id, or null if there is none.
+         * @see Component#getSymbol()
+         */
+        public Processor<T> getProcessorFor(int symbol) {
+            Processor<T>[] current = processors;
+            return symbol >= 0 && symbol < current.length ? current[symbol] : null;
+        }
+
+        /**
+         * Returns the longest dotted attribute name, like "list.first.name", that the unfulfilled components of an
+         * attribute start with, found in a single walk over the components. Names without dots are not included, since
+         * they are looked up by the symbol of a single component instead.
+         * @return The matching name's node, holding its processor and the number of components it spans, or null if
+         *         no dotted name matches.
+         */
+        public PrefixNode<T> getLongestPrefix(Attribute attribute) {
+            PrefixNode<T> node = dottedNames;
+            if (node == null) {
+                return null;
+            }
+            PrefixNode<T> match = null;
+            Component[] comps = attribute.comps;
+            for (int i = attribute.fulfilled; i < comps.length; i++) {
+                node = node.child(comps[i].symbol);
+                if (node == null) {
+                    break;
+                }
+                if (node.processor != null) {
+                    match = node;
+                }
+            }
+            return match;
+        }
+
+        /**
+         * Returns whether any dotted attribute name of this handler starts with the given symbol id.
+         */
+        public boolean hasDottedNameStartingWith(int symbol) {
+            PrefixNode<T> root = dottedNames;
+            return root != null && root.child(symbol) != null;
         }
 
         public abstract AbstractObject processAttribute(T object, Attribute attribute);
     }
 
+    /**
+     * A processor added to an attribute by {@link Handler#extendAttributes(Processor, int, boolean, String...)}.
+     */
+    public static final class Extension<T> {
+        private final Processor<T> processor;
+        private final int priority;
+        private final boolean terminal;
+
+        private Extension(Processor<T> processor, int priority, boolean terminal) {
+            this.processor = processor;
+            this.priority = priority;
+            this.terminal = terminal;
+        }
+
+        public Processor<T> getProcessor() {
+            return processor;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Returns whether a null result from this extension ends processing.
+         */
+        public boolean isTerminal() {
+            return terminal;
+        }
+    }
+
+    /**
+     * The extensions of an attribute in the order they are tried, flattened into arrays together with the registered
+     * processor, so that processing is a single loop instead of a nesting of processors. A chain without a registered
+     * processor extends an attribute inherited from a parent handler.
+     */
+    private static class Chain<T> implements Processor<T> {
+        final Processor<T> base;
+        final Extension<T>[] extensions;
+        final Processor<T>[] flat;
+        final boolean[] terminal;
+
+        Chain(Processor<T> base, Extension<T>[] extensions) {
+            this.base = base;
+            this.extensions = extensions;
+            int length = extensions.length + (base == null ? 0 : 1);
+            this.flat = Handler.newProcessorArray(length);
+            this.terminal = new boolean[length];
+            for (int i = 0; i < extensions.length; i++) {
+                flat[i] = extensions[i].processor;
+                terminal[i] = extensions[i].terminal;
+            }
+            if (base != null) {
+                flat[extensions.length] = base;
+            }
+        }
+
+        @Override
+        public AbstractObject process(T object, Attribute attribute) {
+            for (int i = 0; i < flat.length; i++) {
+                AbstractObject result = flat[i].process(object, attribute);
+                if (result != null || terminal[i]) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> Extension<T>[] newExtensionArray(int length) {
+            return (Extension<T>[]) new Extension[length];
+        }
+
+        static <T> Processor<T> of(Processor<T> base, Extension<T>[] extensions) {
+            if (extensions.length == 0) {
+                return base;
+            }
+            // Only preserve DirectProcessor type if every processor is a DirectProcessor
+            boolean direct = base == null || base instanceof DirectProcessor;
+            for (Extension<T> extension : extensions) {
+                direct &= extension.processor instanceof DirectProcessor;
+            }
+            return direct ? new DirectChain<>(base, extensions) : new Chain<>(base, extensions);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Processor<T> with(Processor<T> current, Extension<T> extension) {
+            Processor<T> base = current instanceof Chain ? ((Chain<T>) current).base : current;
+            Extension<T>[] extensions = current instanceof Chain ? ((Chain<T>) current).extensions : newExtensionArray(0);
+            int index = 0;
+            while (index < extensions.length && extensions[index].priority > extension.priority) {
+                index++;
+            }
+            Extension<T>[] updated = newExtensionArray(extensions.length + 1);
+            System.arraycopy(extensions, 0, updated, 0, index);
+            updated[index] = extension;
+            System.arraycopy(extensions, index, updated, index + 1, extensions.length - index);
+            return of(base, updated);
+        }
+
+        /**
+         * Returns the processor without the extension, or the same processor if it does not have the extension.
+         */
+        @SuppressWarnings("unchecked")
+        static <T> Processor<T> without(Processor<T> current, Extension<T> extension) {
+            if (!(current instanceof Chain)) {
+                return current;
+            }
+            Chain<T> chain = (Chain<T>) current;
+            for (int i = 0; i < chain.extensions.length; i++) {
+                if (chain.extensions[i] == extension) {
+                    Extension<T>[] updated = newExtensionArray(chain.extensions.length - 1);
+                    System.arraycopy(chain.extensions, 0, updated, 0, i);
+                    System.arraycopy(chain.extensions, i + 1, updated, i, updated.length - i);
+                    return of(chain.base, updated);
+                }
+            }
+            return current;
+        }
+    }
+
+    private static final class DirectChain<T> extends Chain<T> implements DirectProcessor<T> {
+        DirectChain(Processor<T> base, Extension<T>[] extensions) {
+            super(base, extensions);
+        }
+    }
+
+    /**
+     * Adapts an {@link ArgumentProcessor} to a processor, binding the context of the current component to its schema.
+     */
+    private static class SchemaProcessor<T> implements Processor<T> {
+        private final ArgumentSchema schema;
+        private final ArgumentProcessor<T> processor;
+
+        SchemaProcessor(ArgumentSchema schema, ArgumentProcessor<T> processor) {
+            this.schema = schema;
+            this.processor = processor;
+        }
+
+        @Override
+        public AbstractObject process(T object, Attribute attribute) {
+            return processor.process(object, attribute, attribute.getContext().bind(schema));
+        }
+    }
+
+    private static final class DirectSchemaProcessor<T> extends SchemaProcessor<T> implements DirectProcessor<T> {
+        DirectSchemaProcessor(ArgumentSchema schema, ArgumentProcessor<T> processor) {
+            super(schema, processor);
+        }
+    }
+
+    /**
+     * A node of a handler's trie of dotted attribute names, keyed by the symbol id of each component. A node holds a
+     * processor if the components leading to it form a registered name.
+     */
+    public static final class PrefixNode<T> {
+        private final static int[] NO_SYMBOLS = new int[0];
+
+        private final int length;
+        private Processor<T> processor;
+        // Parallel arrays; nodes are only changed while the trie is built, before it is published
+        private int[] symbols = NO_SYMBOLS;
+        private PrefixNode<T>[] children;
+
+        private PrefixNode(int length) {
+            this.length = length;
+        }
+
+        private static <T> PrefixNode<T> insert(PrefixNode<T> root, String name, Processor<T> processor) {
+            if (root == null) {
+                root = new PrefixNode<>(0);
+            }
+            PrefixNode<T> node = root;
+            int start = 0;
+            while (start <= name.length()) {
+                int end = name.indexOf('.', start);
+                if (end == -1) {
+                    end = name.length();
+                }
+                node = node.childOrNew(SymbolTable.intern(name.substring(start, end)));
+                start = end + 1;
+            }
+            node.processor = processor;
+            return root;
+        }
+
+        private PrefixNode<T> child(int symbol) {
+            int[] current = symbols;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == symbol) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private PrefixNode<T> childOrNew(int symbol) {
+            PrefixNode<T> child = child(symbol);
+            if (child == null) {
+                int size = symbols.length;
+                child = new PrefixNode<>(length + 1);
+                symbols = Arrays.copyOf(symbols, size + 1);
+                children = children == null ? (PrefixNode<T>[]) new PrefixNode[1] : Arrays.copyOf(children, size + 1);
+                symbols[size] = symbol;
+                children[size] = child;
+            }
+            return child;
+        }
+
+        public Processor<T> getProcessor() {
+            return processor;
+        }
+
+        /**
+         * Returns the number of components of the name this node ends.
+         */
+        public int getLength() {
+            return length;
+        }
+    }
+
     public static class Component {
 
         public class Context {
-            private final AbstractObject val;
             private final String raw;
-            private Map<Class<? extends AbstractObject>, AbstractObject> rawObjCache;
             private final Map<String, String> map;
-            private Map<String, Map<Class<? extends AbstractObject>, AbstractObject>> mapObjCache;
+            // Created on first use, and only ever replaced by an equivalent value, so races are harmless
+            private volatile AbstractObject val;
+            private volatile AbstractObject bestMatch;
+            private volatile Map<Class<? extends AbstractObject>, AbstractObject> rawObjCache;
+            private volatile Map<String, Map<Class<? extends AbstractObject>, AbstractObject>> mapObjCache;
+            // The arguments most recently bound, which only change if the component is processed by another schema
+            private volatile ArgumentSchema.Arguments arguments;
 
             public Context(AbstractObject context, String rawContext, Map<String, String> mappedContext) {
                 raw = StringUtils.emptyAsNull(rawContext);
-                val = context == null ?
-                        (raw == null ? null : TextObject.construct(rawContext)) :
-                        context;
+                val = context;
                 this.map = mappedContext.isEmpty() ? null : mappedContext;
             }
 
@@ -113,7 +573,12 @@ public class Attribute implements Cloneable {
             }
 
             public AbstractObject get() {
-                return val;
+                AbstractObject current = val;
+                if (current == null && raw != null) {
+                    current = TextObject.construct(raw);
+                    val = current;
+                }
+                return current;
             }
 
             public String getRaw() {
@@ -122,10 +587,38 @@ public class Attribute implements Cloneable {
 
             @SuppressWarnings("unchecked")
             public <T extends AbstractObject> T getRawAsType(Class<T> toType) {
-                if (rawObjCache == null) {
-                    rawObjCache = new HashMap<>();
+                Map<Class<? extends AbstractObject>, AbstractObject> cache = rawObjCache;
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<>(2);
+                    rawObjCache = cache;
+                }
+                return (T) cache.computeIfAbsent(toType, k -> ObjectRegistry.constructForClass(raw, toType));
+            }
+
+            /**
+             * Returns the raw context constructed as whichever registered type matches it best.
+             * @see ObjectRegistry#constructBestMatch(String)
+             */
+            public AbstractObject getRawAsBestMatch() {
+                AbstractObject current = bestMatch;
+                if (current == null && raw != null) {
+                    current = ObjectRegistry.constructBestMatch(raw);
+                    bestMatch = current;
+                }
+                return current;
+            }
+
+            /**
+             * Returns this context converted into the arguments of a schema. The conversion is done the first time,
+             * and the result is shared by every later evaluation of this component with the same schema.
+             */
+            public ArgumentSchema.Arguments bind(ArgumentSchema schema) {
+                ArgumentSchema.Arguments current = arguments;
+                if (current == null || current.getSchema() != schema) {
+                    current = schema.bind(this);
+                    arguments = current;
                 }
-                return (T) rawObjCache.computeIfAbsent(toType, k -> ObjectRegistry.constructForClass(raw, toType));
+                return current;
             }
 
             public boolean isMap() {
@@ -148,13 +641,19 @@ public class Attribute implements Cloneable {
                 if (val == null) {
                     return null;
                 }
+                Map<String, Map<Class<? extends AbstractObject>, AbstractObject>> cache = mapObjCache;
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<>(map.size());
+                    mapObjCache = cache;
+                }
                 Map<Class<? extends AbstractObject>, AbstractObject> cacheMap =
-                        mapObjCache.computeIfAbsent(key, k -> new HashMap<>());
+                        cache.computeIfAbsent(key, k -> new ConcurrentHashMap<>(2));
                 return cacheMap.computeIfAbsent(asType, k -> ObjectRegistry.constructForClass(val, asType));
             }
         }
 
         private final String name;
+        private final int symbol;
         private final Context context;
 
         public Component(String name, AbstractObject context, String rawContext, Map<String, String> mappedContext) {
@@ -162,6 +661,7 @@ public class Attribute implements Cloneable {
                 throw new IllegalArgumentException("Cannot have a nameless attribute!");
             }
             this.name = name;
+            this.symbol = SymbolTable.intern(name);
             this.context = new Context(context, rawContext, mappedContext);
         }
 
@@ -169,6 +669,13 @@ public class Attribute implements Cloneable {
             return name;
         }
 
+        /**
+         * Returns the id of this component's name in the {@link SymbolTable}.
+         */
+        public int getSymbol() {
+            return symbol;
+        }
+
         public boolean hasContext() {
             return context.exists();
         }
@@ -183,47 +690,111 @@ public class Attribute implements Cloneable {
         }
     }
 
+    /**
+     * The parsed components of an attribute, which never change once created. A template can be cached and shared
+     * between threads; each evaluation walks it with an {@link Attribute} of its own, created by {@link #newCursor()}.
+     */
+    public static final class Template {
+        private final static Template EMPTY = new Template("", new Component[0]);
+
+        public static Template parse(String val) {
+            return new Template(val, Parser.getComponentsFromAttributeString(val));
+        }
+
+        private final Component[] comps;
+        private final String rawVal;
+
+        public Template(Component[] c) {
+            this(joinComponents(c), c);
+        }
+
+        Template(String val, Component[] c) {
+            if (val == null) {
+                throw new IllegalArgumentException("Cannot have pass a null or empty string as the raw value of an attribute!");
+            }
+            if (c == null) {
+                c = new Component[0];
+            }
+            for (Component comp : c) {
+                if (comp == null) {
+                    throw new IllegalArgumentException("Cannot have a null component!");
+                }
+            }
+            comps = c;
+            rawVal = val;
+        }
+
+        private static String joinComponents(Component[] c) {
+            if (c == null || c.length == 0) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Component cPart : c) {
+                sb.append(cPart.toString()).append('.');
+            }
+            return sb.substring(0, sb.length() - 1);
+        }
+
+        /**
+         * Returns a new attribute positioned at the first component of this template.
+         */
+        public Attribute newCursor() {
+            return new Attribute(this);
+        }
+
+        public Component getComponent(int index) {
+            if (index < 0 || index >= comps.length) {
+                throw new IndexOutOfBoundsException("There are only " + comps.length + " attribute components! " +
+                        "Requested attribute component was " + index);
+            }
+            return comps[index];
+        }
+
+        public int length() {
+            return comps.length;
+        }
+
+        @Override
+        public String toString() {
+            return rawVal;
+        }
+    }
+
+    // The evaluation state of an attribute is only its position in the template; everything else is shared
+    private final Template template;
     private final Component[] comps;
-    private final String rawVal;
 
     private int fulfilled = 0;
 
     public Attribute() {
-        comps = new Component[0];
-        rawVal = "";
+        this(Template.EMPTY);
     }
 
     public Attribute(String val) {
-        this(val, Parser.getComponentsFromAttributeString(val));
+        this(Template.parse(val));
     }
 
     public Attribute(Component[] c) {
-        comps = c;
-
-        StringBuilder sb = new StringBuilder();
-        for (Component cPart : c) {
-            sb.append(cPart.toString()).append('.');
-        }
-        rawVal = sb.substring(0, sb.length() - 1);
+        this(new Template(c));
     }
 
     Attribute(String val, Component[] c) {
-        if (val == null) {
-            throw new IllegalArgumentException("Cannot have pass a null or empty string as the raw value of an attribute!");
-        }
-        if (c == null) {
-            c = new Component[0];
-        }
-        for (Component comp : c) {
-            if (comp == null) {
-                throw new IllegalArgumentException("Cannot have a null component!");
-            }
-        }
-        comps = c;
-        rawVal = val;
+        this(new Template(val, c));
+    }
+
+    public Attribute(Template template) {
+        this.template = ObjectValidator.objectIsNonNull(template, "An attribute template must be provided!");
+        this.comps = template.comps;
+    }
+
+    public Template getTemplate() {
+        return template;
     }
 
     public Component getComponent() {
+        if (fulfilled < comps.length) {
+            return comps[fulfilled];
+        }
         return getComponent(0, false);
     }
 
@@ -232,8 +803,8 @@ public class Attribute implements Cloneable {
     }
 
     public Component getComponent(int offset, boolean ignoreFulfilled) {
-        int index = NumberValidator.numberIsNonNegative(offset) + (ignoreFulfilled ? 0 : fulfilled);
-        if (index >= comps.length) {
+        int index = offset + (ignoreFulfilled ? 0 : fulfilled);
+        if (offset < 0 || index >= comps.length) {
             throw new IndexOutOfBoundsException("There are only " + comps.length + " attribute components! Requested " +
                     "attribute component was " + index + (!ignoreFulfilled ? " (offset=" + offset + "; fulfilled=" +
                     fulfilled + ")" : ""));
@@ -281,15 +852,25 @@ public class Attribute implements Cloneable {
         return startsWith(0, vals);
     }
 
-    private boolean startsWithDotSplit(int offset, String s) {
-        String[] split = s.split("\\.");
-        if (split.length > comps.length - (offset + fulfilled)) {
-            return false;
-        }
-        for (int i = 0; i < split.length; i++) {
-            if (!getName(i + offset).equals(split[i])) {
+    /**
+     * Compares each dot-separated part of a name to the name of the component at the same position in place, without
+     * splitting the name.
+     */
+    private boolean startsWithDotted(int index, String s) {
+        int start = 0;
+        while (start <= s.length()) {
+            if (index >= comps.length) {
+                return false;
+            }
+            int end = s.indexOf('.', start);
+            if (end == -1) {
+                end = s.length();
+            }
+            String name = comps[index++].name;
+            if (name.length() != end - start || !s.regionMatches(start, name, 0, name.length())) {
                 return false;
             }
+            start = end + 1;
         }
         return true;
     }
@@ -300,8 +881,9 @@ public class Attribute implements Cloneable {
             return false;
         }
 
+        int index = NumberValidator.numberIsNonNegative(offset) + fulfilled;
         for (String name : vals) {
-            if (getName(offset).equals(name) || startsWithDotSplit(offset, name)) {
+            if (startsWithDotted(index, name)) {
                 return true;
             }
         }
@@ -312,6 +894,13 @@ public class Attribute implements Cloneable {
         fulfilled += fulfilled < comps.length ? 1 : 0;
     }
 
+    /**
+     * Fulfills the given number of components at once, such as the components of a dotted attribute name.
+     */
+    public void fulfill(int components) {
+        fulfilled = Math.min(fulfilled + NumberValidator.numberIsNonNegative(components), comps.length);
+    }
+
     public void resetFulfilled() {
         fulfilled = 0;
     }
@@ -337,15 +926,14 @@ public class Attribute implements Cloneable {
 
     @Override
     public String toString() {
-        return rawVal;
+        return template.rawVal;
     }
 
     /**
-     * Returns a clone of this Attribute without
-     * @return
+     * Returns a new attribute over the same template, positioned at its first component. Nothing is copied.
      */
     public Attribute imperfectClone() {
-        return new Attribute(rawVal, comps);
+        return new Attribute(template);
     }
 
     @Override
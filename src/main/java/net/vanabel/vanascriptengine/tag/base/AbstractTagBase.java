@@ -62,7 +62,16 @@ public abstract class AbstractTagBase {
                 return result;
             }
 
-            Attribute.Processor<T> processor = attributes.get(attribute.getName());
+            Attribute.PrefixNode<T> prefix = getLongestPrefix(attribute);
+            if (prefix != null) {
+                result = prefix.getProcessor().process(tagBase, attribute);
+                if (result != null) {
+                    attribute.fulfill(prefix.getLength());
+                    return result;
+                }
+            }
+
+            Attribute.Processor<T> processor = getProcessorFor(attribute.getComponent().getSymbol());
             if (processor != null) {
                 result = processor.process(tagBase, attribute);
                 if (result != null) {
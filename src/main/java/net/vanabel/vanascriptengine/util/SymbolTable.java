@@ -0,0 +1,73 @@
+package net.vanabel.vanascriptengine.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each attribute and modifier name a small, dense integer id, so that handlers can look processors up by
+ * array index instead of hashing the name. Ids are never reused or released.
+ */
+public final class SymbolTable {
+
+    /**
+     * The id returned by {@link #idOf(String)} for names that were never interned.
+     */
+    public final static int UNKNOWN = -1;
+
+    private final static ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static volatile int size = 0;
+
+    private SymbolTable() {}
+
+    /**
+     * Returns the id of a name, assigning the next free id if the name has not been seen before.
+     */
+    public static int intern(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Cannot intern a null name!");
+        }
+        Integer id = IDS.get(name);
+        return id != null ? id : assign(name);
+    }
+
+    private static synchronized int assign(String name) {
+        Integer id = IDS.get(name);
+        if (id != null) {
+            return id;
+        }
+        int newId = size;
+        String[] current = names;
+        if (newId == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[newId] = name;
+        // Publish the name before the id, so that nameOf never sees an id without its name
+        names = current;
+        size = newId + 1;
+        IDS.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * Returns the id of a name, or {@link #UNKNOWN} if it was never interned.
+     */
+    public static int idOf(String name) {
+        Integer id = name == null ? null : IDS.get(name);
+        return id != null ? id : UNKNOWN;
+    }
+
+    public static String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("There is no symbol with the id " + id + "!");
+        }
+        return names[id];
+    }
+
+    /**
+     * Returns the number of interned names. Every id is less than this.
+     */
+    public static int size() {
+        return size;
+    }
+}
@@ -0,0 +1,408 @@
+package net.vanabel.vanascriptengine.util.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache that is bounded by the total weight of its entries.
+ * <p>
+ * New entries enter a small LRU window. Entries that leave the window must win against the least recently used entry
+ * of the main space, judged by how often both keys were requested recently (see {@link FrequencySketch}); the loser
+ * is evicted. This keeps one-off keys from flushing out popular ones. The main space is split into a probation and a
+ * protected segment, so that entries requested again after admission are evicted last.
+ * <p>
+ * Reads never block. Recency is recorded only when the eviction lock is free, so a read under heavy contention may
+ * not be counted towards its entry's recency.
+ */
+public final class BoundedCache<K, V> {
+
+    private static final byte WINDOW = 0, PROBATION = 1, PROTECTED = 2, DEAD = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Weigher<? super K, ? super V> weigher;
+    private final boolean unitWeights;
+    private final long maximum, maxWindow, maxProtected;
+
+    // Guarded by evictionLock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedQueue = new AccessOrderDeque<>();
+    private long windowWeight, protectedWeight;
+    private volatile long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedWeight = new LongAdder();
+
+    /**
+     * Creates a cache that holds at most the given number of entries.
+     */
+    public BoundedCache(long maximumSize) {
+        this(maximumSize, (k, v) -> 1, true);
+    }
+
+    /**
+     * Creates a cache whose entries weigh at most the given total, as calculated by the weigher.
+     */
+    public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        this(maximumWeight, weigher, false);
+    }
+
+    private BoundedCache(long maximum, Weigher<? super K, ? super V> weigher, boolean unitWeights) {
+        if (maximum < 0) {
+            throw new IllegalArgumentException("The maximum weight of a cache cannot be negative! Received: " + maximum);
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("A weigher must be provided!");
+        }
+        this.weigher = weigher;
+        this.unitWeights = unitWeights;
+        this.maximum = maximum;
+        this.maxWindow = Math.max(1, maximum / 100);
+        this.maxProtected = (maximum - maxWindow) * 4 / 5;
+        this.sketch = new FrequencySketch(unitWeights ? maximum : 256);
+    }
+
+    /**
+     * Returns the cached value for a key, or null if it is not cached.
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value for a key, computing and caching it first if needed. If several threads request the
+     * same missing key at once, only one of them runs the loader; the others wait for and share its result, including
+     * any exception it throws. The loader must not request the same key from this cache.
+     * @param loader A function that computes the value. A null result is returned but not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            afterRead(node);
+            return node.value;
+        }
+        misses.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            // Another thread may have finished loading between the first lookup and claiming the key
+            node = data.get(key);
+            V value = node != null ? node.value : loader.apply(key);
+            if (node == null && value != null) {
+                put(key, value);
+            }
+            future.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            loading.remove(key, future);
+        }
+    }
+
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Cannot cache a null key or value!");
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalStateException("A weigher returned the negative weight " + weight + " for " + key + "!");
+        }
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                int diff = weight - node.weight;
+                node.weight = weight;
+                node.value = value;
+                if (node.queue == WINDOW) {
+                    windowWeight += diff;
+                }
+                else if (node.queue == PROTECTED) {
+                    protectedWeight += diff;
+                }
+                weightedSize += diff;
+                onAccess(node);
+            }
+            else {
+                node = new Node<>(key, value, weight);
+                data.put(key, node);
+                window.addLast(node);
+                windowWeight += weight;
+                weightedSize += weight;
+                if (!unitWeights && data.size() > sketch.tableSize()) {
+                    sketch.ensureCapacity(2L * data.size());
+                }
+                sketch.increment(key);
+            }
+            evict();
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                unlink(node);
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            sketch.clear();
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), evictedWeight.sum());
+    }
+
+
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Eviction policy
+
+    private void afterRead(Node<K, V> node) {
+        hits.increment();
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                protectedQueue.addLast(node);
+                node.queue = PROTECTED;
+                protectedWeight += node.weight;
+                while (protectedWeight > maxProtected) {
+                    Node<K, V> demoted = protectedQueue.peekFirst();
+                    protectedQueue.remove(demoted);
+                    protectedWeight -= demoted.weight;
+                    probation.addLast(demoted);
+                    demoted.queue = PROBATION;
+                }
+                break;
+            case PROTECTED:
+                protectedQueue.moveToBack(node);
+                break;
+            default:
+                // Evicted while this read was in flight
+                return;
+        }
+        sketch.increment(node.key);
+    }
+
+    private void evict() {
+        Node<K, V> candidate = evictFromWindow();
+        while (weightedSize > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                return;
+            }
+
+            if (candidate == null) {
+                evictEntry(victim);
+            }
+            else if (candidate == victim || candidate.weight > maximum || !admit(candidate.key, victim.key)) {
+                Node<K, V> next = candidate.next;
+                evictEntry(candidate);
+                candidate = next;
+            }
+            else {
+                evictEntry(victim);
+            }
+        }
+    }
+
+    /**
+     * Moves entries that overflow the window into probation.
+     * @return The first entry that was moved, or null. It and every entry after it are candidates for admission.
+     */
+    private Node<K, V> evictFromWindow() {
+        Node<K, V> first = null;
+        while (windowWeight > maxWindow) {
+            Node<K, V> node = window.peekFirst();
+            if (node == null) {
+                break;
+            }
+            window.remove(node);
+            windowWeight -= node.weight;
+            probation.addLast(node);
+            node.queue = PROBATION;
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        return sketch.frequency(candidateKey) > sketch.frequency(victimKey);
+    }
+
+    private void evictEntry(Node<K, V> node) {
+        unlink(node);
+        evictions.increment();
+        evictedWeight.add(node.weight);
+    }
+
+    private void unlink(Node<K, V> node) {
+        data.remove(node.key, node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedQueue.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+        node.queue = DEAD;
+        weightedSize -= node.weight;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        int weight;
+        byte queue = WINDOW;
+        Node<K, V> prev, next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class AccessOrderDeque<K, V> {
+        private Node<K, V> head, tail;
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            }
+            else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            }
+            else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            }
+            else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package net.vanabel.vanascriptengine.util.cache;
+
+/**
+ * An immutable snapshot of the counters of a cache.
+ */
+public final class CacheStats {
+
+    private final long hits, misses, evictions, evictedWeight;
+
+    public CacheStats(long hits, long misses, long evictions, long evictedWeight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.evictedWeight = evictedWeight;
+    }
+
+    public long hitCount() {
+        return hits;
+    }
+
+    public long missCount() {
+        return misses;
+    }
+
+    public long requestCount() {
+        return hits + misses;
+    }
+
+    /**
+     * Returns the ratio of requests that were hits, or 1.0 if no requests were made.
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * Returns the number of entries removed to keep the cache under its maximum weight. Candidates that were refused
+     * admission are counted as well. Explicit invalidations are not.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    public long evictedWeight() {
+        return evictedWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", evictedWeight=" +
+                evictedWeight + "]";
+    }
+}
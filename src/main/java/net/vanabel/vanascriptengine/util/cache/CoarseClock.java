@@ -0,0 +1,29 @@
+package net.vanabel.vanascriptengine.util.cache;
+
+/**
+ * A millisecond clock that is only as precise as the last call to {@link #tick()}. Reading it is a single volatile
+ * read, which makes it suitable for stamping cache hits. Slow paths (cache misses and sweeps) tick it.
+ */
+public final class CoarseClock {
+
+    private static volatile long now = System.currentTimeMillis();
+
+    /**
+     * Returns the time of the last tick, in milliseconds since the epoch.
+     */
+    public static long now() {
+        return now;
+    }
+
+    /**
+     * Reads the system clock and publishes it as the current time.
+     * @return The new current time.
+     */
+    public static long tick() {
+        long time = System.currentTimeMillis();
+        now = time;
+        return time;
+    }
+
+    private CoarseClock() {}
+}
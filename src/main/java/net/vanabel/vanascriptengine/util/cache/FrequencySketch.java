@@ -0,0 +1,111 @@
+package net.vanabel.vanascriptengine.util.cache;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of 4-bit counters that estimates how often keys were seen recently. Every counter is halved
+ * once the number of recorded increments reaches ten times the table size, so old popularity fades away.
+ * This class is not thread-safe; {@link BoundedCache} only touches it while holding its eviction lock.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 26;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        ensureCapacity(expectedEntries);
+    }
+
+    /**
+     * Grows the table so that it can track the given number of entries. Growing forgets all recorded frequencies.
+     */
+    void ensureCapacity(long expectedEntries) {
+        int size = (int) Math.min(Math.max(expectedEntries, 16), MAXIMUM_TABLE_SIZE);
+        size = Integer.highestOneBit(size - 1) << 1;
+        if (table != null && table.length >= size) {
+            return;
+        }
+        table = new long[size];
+        tableMask = size - 1;
+        sampleSize = 10 * size;
+        additions = 0;
+    }
+
+    int tableSize() {
+        return table.length;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int freq = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            freq = Math.min(freq, counter(hash, i));
+        }
+        return freq;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(hash, i);
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        additions = 0;
+    }
+
+    private int counter(int hash, int depth) {
+        int index = indexOf(hash, depth);
+        int offset = counterOffset(hash, depth);
+        return (int) ((table[index] >>> offset) & 0xfL);
+    }
+
+    private boolean incrementAt(int hash, int depth) {
+        int index = indexOf(hash, depth);
+        int offset = counterOffset(hash, depth);
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int counterOffset(int hash, int depth) {
+        // Each long holds 16 counters; every depth uses a different quarter of them
+        return (((hash >>> (depth << 3)) & 3) + (depth << 2)) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,14 @@
+package net.vanabel.vanascriptengine.util.cache;
+
+/**
+ * Calculates the weight of a cache entry. The total weight of a {@link BoundedCache} is kept under its maximum.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of an entry. Weights are calculated once, when the entry is stored.
+     * @return A non-negative weight.
+     */
+    int weigh(K key, V value);
+}
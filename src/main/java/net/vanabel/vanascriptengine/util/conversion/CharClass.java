@@ -0,0 +1,89 @@
+package net.vanabel.vanascriptengine.util.conversion;
+
+/**
+ * Character classes used to cheaply rule out literal types. {@link #classify(CharSequence)} returns the classes of
+ * every character in a String as a bit mask, which can then be tested against the classes a type allows.
+ */
+public final class CharClass {
+
+    public final static int DIGIT = 1;
+    public final static int SIGN = 1 << 1;
+    public final static int DOT = 1 << 2;
+    /** 'e' and 'E', which are also hexadecimal digits. */
+    public final static int LETTER_E = 1 << 3;
+    /** 'x' and 'X'. */
+    public final static int LETTER_X = 1 << 4;
+    /** 'b' and 'B', which are also hexadecimal digits. */
+    public final static int LETTER_B = 1 << 5;
+    /** The remaining hexadecimal letters: 'a', 'c', 'd' and 'f' in either case. */
+    public final static int HEX_LETTER = 1 << 6;
+    /** Every other ASCII letter. */
+    public final static int LETTER = 1 << 7;
+    public final static int WHITESPACE = 1 << 8;
+    public final static int QUOTE = 1 << 9;
+    /** Every other character, including all non-ASCII characters. */
+    public final static int OTHER = 1 << 10;
+
+    public final static int LETTERS = LETTER_E | LETTER_X | LETTER_B | HEX_LETTER | LETTER;
+    public final static int ANY = (1 << 11) - 1;
+
+    private final static short[] ASCII_CLASSES = new short[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            int cls;
+            if (c >= '0' && c <= '9') {
+                cls = DIGIT;
+            }
+            else if (c == '+' || c == '-') {
+                cls = SIGN;
+            }
+            else if (c == '.') {
+                cls = DOT;
+            }
+            else if (c == 'e' || c == 'E') {
+                cls = LETTER_E;
+            }
+            else if (c == 'x' || c == 'X') {
+                cls = LETTER_X;
+            }
+            else if (c == 'b' || c == 'B') {
+                cls = LETTER_B;
+            }
+            else if ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')) {
+                cls = HEX_LETTER;
+            }
+            else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                cls = LETTER;
+            }
+            else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                cls = WHITESPACE;
+            }
+            else if (c == '"' || c == '\'') {
+                cls = QUOTE;
+            }
+            else {
+                cls = OTHER;
+            }
+            ASCII_CLASSES[c] = (short) cls;
+        }
+    }
+
+    public static int classOf(char c) {
+        return c < 128 ? ASCII_CLASSES[c] : OTHER;
+    }
+
+    /**
+     * Returns the union of the classes of every character in a sequence, in a single pass.
+     */
+    public static int classify(CharSequence seq) {
+        int mask = 0;
+        for (int i = 0, len = seq.length(); i < len; i++) {
+            char c = seq.charAt(i);
+            mask |= c < 128 ? ASCII_CLASSES[c] : OTHER;
+        }
+        return mask;
+    }
+
+    private CharClass() {}
+}
@@ -22,16 +22,120 @@ public final class StringUtils {
     }
 
     public static boolean isDouble(String str) {
-        return toDouble(str) != null;
+        return isDecimalLiteral(str);
     }
 
     public static Double toDouble(String str) {
-        try {
-            return Double.parseDouble(str);
+        double d = str == null ? Double.NaN : scanDecimal(str, 0, str.length());
+        return Double.isNaN(d) ? null : d;
+    }
+
+    private final static double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private final static long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Validates and converts a decimal literal in a single pass, without throwing. A decimal literal has an optional
+     * sign, at least one digit, an optional fraction of at least one digit after a '.', and an optional exponent
+     * made of 'e' or 'E', an optional sign and at least one digit.
+     * <p>
+     * When the significant digits fit in a long that a double represents exactly and the decimal exponent is at most
+     * 22, the result is computed with a single exact multiplication or division. Only longer literals fall back to
+     * {@link Double#parseDouble(String)}, after they have been validated.
+     * @param seq The characters to scan.
+     * @param start The index of the first character of the literal.
+     * @param end The index after the last character of the literal.
+     * @return The value of the literal, or {@link Double#NaN} if it is not a valid decimal literal.
+     */
+    public static double scanDecimal(CharSequence seq, int start, int end) {
+        if (seq == null || start < 0 || end > seq.length() || start >= end) {
+            return Double.NaN;
         }
-        catch (NumberFormatException nfe) {
-            return null;
+        int i = start;
+        boolean negative = false;
+        char c = seq.charAt(i);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0, droppedDigits = 0, exponent = 0;
+        int intStart = i;
+        for (; i < end && (c = seq.charAt(i)) >= '0' && c <= '9'; i++) {
+            if (significantDigits < 18) {
+                if (mantissa != 0 || c != '0') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    significantDigits++;
+                }
+            }
+            else {
+                droppedDigits++;
+            }
+        }
+        if (i == intStart) {
+            return Double.NaN;
+        }
+        exponent += droppedDigits;
+
+        if (i < end && seq.charAt(i) == '.') {
+            int fracStart = ++i;
+            for (; i < end && (c = seq.charAt(i)) >= '0' && c <= '9'; i++) {
+                if (significantDigits < 18) {
+                    if (mantissa != 0 || c != '0') {
+                        mantissa = mantissa * 10 + (c - '0');
+                        significantDigits++;
+                    }
+                    exponent--;
+                }
+                else {
+                    droppedDigits++;
+                }
+            }
+            if (i == fracStart) {
+                return Double.NaN;
+            }
+        }
+
+        if (i < end && ((c = seq.charAt(i)) == 'e' || c == 'E')) {
+            boolean negativeExp = false;
+            if (++i < end && ((c = seq.charAt(i)) == '+' || c == '-')) {
+                negativeExp = c == '-';
+                i++;
+            }
+            int expStart = i, explicitExp = 0;
+            for (; i < end && (c = seq.charAt(i)) >= '0' && c <= '9'; i++) {
+                // Anything this large already over- or underflows, so stop counting before the int overflows
+                if (explicitExp < 100000) {
+                    explicitExp = explicitExp * 10 + (c - '0');
+                }
+            }
+            if (i == expStart) {
+                return Double.NaN;
+            }
+            exponent += negativeExp ? -explicitExp : explicitExp;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        }
+        else if (droppedDigits == 0 && mantissa <= MAXIMUM_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0 ? mantissa / EXACT_POWERS_OF_TEN[-exponent] : mantissa * EXACT_POWERS_OF_TEN[exponent];
+        }
+        else {
+            return Double.parseDouble(seq.subSequence(start, end).toString());
         }
+        return negative ? -value : value;
+    }
+
+    public static boolean isDecimalLiteral(CharSequence seq) {
+        return seq != null && !Double.isNaN(scanDecimal(seq, 0, seq.length()));
     }
 
     public static boolean matchesIntegerPattern(String str) {
@@ -46,6 +150,114 @@ public final class StringUtils {
         return HEXADECIMAL_PATTERN.matcher(str).matches();
     }
 
+    public final static int INTEGER_OVERFLOW = -1;
+    public final static int INTEGER_INVALID = 0;
+    public final static int INTEGER_DECIMAL = 1;
+    public final static int INTEGER_BINARY = 2;
+    public final static int INTEGER_HEXADECIMAL = 3;
+
+    /**
+     * Classifies and parses an integer literal in a single pass, without allocating or throwing.
+     * Accepts decimal literals, binary literals starting with "0b" and hexadecimal literals starting with "0x", each
+     * with an optional sign. Like Java literals, binary and hexadecimal literals may use all 64 bits, so
+     * "0xffffffffffffffff" is -1. Decimal literals must lie within the range of a long.
+     * @param seq The characters to scan.
+     * @param start The index of the first character of the literal.
+     * @param end The index after the last character of the literal.
+     * @param result If not null, receives the parsed value at index 0 when the literal is valid.
+     * @return {@link #INTEGER_DECIMAL}, {@link #INTEGER_BINARY} or {@link #INTEGER_HEXADECIMAL} for a valid literal,
+     *         {@link #INTEGER_OVERFLOW} for a well-formed literal that does not fit in a long, and
+     *         {@link #INTEGER_INVALID} otherwise. Only valid literals have a positive result.
+     */
+    public static int scanInteger(CharSequence seq, int start, int end, long[] result) {
+        if (seq == null || start < 0 || end > seq.length() || start >= end) {
+            return INTEGER_INVALID;
+        }
+        int i = start;
+        boolean negative = false;
+        char c = seq.charAt(i);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            if (++i == end) {
+                return INTEGER_INVALID;
+            }
+        }
+
+        int shift = 0;
+        if (seq.charAt(i) == '0' && i + 1 < end) {
+            char prefix = seq.charAt(i + 1);
+            if (prefix == 'b' || prefix == 'B') {
+                shift = 1;
+            }
+            else if (prefix == 'x' || prefix == 'X') {
+                shift = 4;
+            }
+            if (shift != 0 && (i += 2) == end) {
+                return INTEGER_INVALID;
+            }
+        }
+
+        long value = 0;
+        boolean overflow = false;
+        if (shift == 0) {
+            // Accumulate negatively, since the negative range of a long is one larger than the positive range
+            long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            long multMin = limit / 10;
+            for (; i < end; i++) {
+                int digit = seq.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return INTEGER_INVALID;
+                }
+                if (!overflow) {
+                    if (value < multMin || value * 10 < limit + digit) {
+                        overflow = true;
+                    }
+                    else {
+                        value = value * 10 - digit;
+                    }
+                }
+            }
+            value = negative ? value : -value;
+        }
+        else {
+            int radix = 1 << shift;
+            for (; i < end; i++) {
+                int digit = hexDigit(seq.charAt(i));
+                if (digit < 0 || digit >= radix) {
+                    return INTEGER_INVALID;
+                }
+                if ((value >>> (64 - shift)) != 0) {
+                    overflow = true;
+                }
+                value = (value << shift) | digit;
+            }
+            value = negative ? -value : value;
+        }
+
+        if (overflow) {
+            return INTEGER_OVERFLOW;
+        }
+        if (result != null) {
+            result[0] = value;
+        }
+        return shift == 0 ? INTEGER_DECIMAL : shift == 1 ? INTEGER_BINARY : INTEGER_HEXADECIMAL;
+    }
+
+    public static boolean isIntegerLiteral(CharSequence seq) {
+        return seq != null && scanInteger(seq, 0, seq.length(), null) > 0;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        char lower = (char) (c | 0x20);
+        if (lower >= 'a' && lower <= 'f') {
+            return lower - 'a' + 10;
+        }
+        return -1;
+    }
+
     public static boolean isInteger(String str) {
         return toInteger(str) != null;
     }
@@ -1,14 +1,23 @@
 package net.vanabel.vanascriptengine.util.reflection;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Finds annotated members of classes. Each class is scanned at most once per annotation and kind of member; the
+ * results are immutable and cached alongside the class itself, so they are safe to share between threads and do not
+ * keep classes from being unloaded. The methods returning arrays return a new copy on every call, while those
+ * returning lists return the cached, unmodifiable results.
+ */
 public final class ReflectionHelper {
 
     public static Field[] getStaticFieldsForAnnotation(Class<?> clss, Class<? extends Annotation> aClss) {
@@ -16,11 +25,18 @@ public final class ReflectionHelper {
     }
 
     public static Field[] getStaticFieldsForAnnotation(Class<?> clss, Class<? extends Annotation> aClss, boolean onlyPublic) {
+        List<Field> fields = getStaticFieldListForAnnotation(clss, aClss, onlyPublic);
+        return fields == null ? null : fields.toArray(new Field[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Field> getStaticFieldListForAnnotation(Class<?> clss, Class<? extends Annotation> aClss,
+                                                              boolean onlyPublic) {
         if (clss == null || aClss == null) {
             return null; // Quietly fail
         }
 
-        return fetchAnnotatedFields(clss, aClss, ANNOTATED_STATIC_FIELD_CACHE, true, onlyPublic);
+        return (List<Field>) MEMBERS.get(clss).annotated(aClss, FIELDS | STATIC | (onlyPublic ? PUBLIC : 0));
     }
 
     public static Field[] getInstanceFieldsForAnnotation(Object obj, Class<? extends Annotation> aClss) {
@@ -28,11 +44,18 @@ public final class ReflectionHelper {
     }
 
     public static Field[] getInstanceFieldsForAnnotation(Object obj, Class<? extends Annotation> aClss, boolean onlyPublic) {
+        List<Field> fields = getInstanceFieldListForAnnotation(obj, aClss, onlyPublic);
+        return fields == null ? null : fields.toArray(new Field[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Field> getInstanceFieldListForAnnotation(Object obj, Class<? extends Annotation> aClss,
+                                                                boolean onlyPublic) {
         if (obj == null || aClss == null) {
             return null; // Quietly fail
         }
 
-        return fetchAnnotatedFields(obj.getClass(), aClss, ANNOTATED_INSTANCE_FIELD_CACHE, false, onlyPublic);
+        return (List<Field>) MEMBERS.get(obj.getClass()).annotated(aClss, FIELDS | (onlyPublic ? PUBLIC : 0));
     }
 
     public static Method[] getStaticMethodsForAnnotation(Class<?> clss, Class<? extends Annotation> aClss) {
@@ -40,11 +63,18 @@ public final class ReflectionHelper {
     }
 
     public static Method[] getStaticMethodsForAnnotation(Class<?> clss, Class<? extends Annotation> aClss, boolean onlyPublic) {
+        List<Method> methods = getStaticMethodListForAnnotation(clss, aClss, onlyPublic);
+        return methods == null ? null : methods.toArray(new Method[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Method> getStaticMethodListForAnnotation(Class<?> clss, Class<? extends Annotation> aClss,
+                                                                boolean onlyPublic) {
         if (clss == null || aClss == null) {
             return null; // Quietly fail
         }
 
-        return fetchAnnotatedMethods(clss, aClss, ANNOTATED_STATIC_METHOD_CACHE, true, onlyPublic);
+        return (List<Method>) MEMBERS.get(clss).annotated(aClss, STATIC | (onlyPublic ? PUBLIC : 0));
     }
 
     public static Method[] getInstanceMethodsForAnnotation(Object obj, Class<? extends Annotation> aClss) {
@@ -52,11 +82,18 @@ public final class ReflectionHelper {
     }
 
     public static Method[] getInstanceMethodsForAnnotation(Object obj, Class<? extends Annotation> aClss, boolean onlyPublic) {
+        List<Method> methods = getInstanceMethodListForAnnotation(obj, aClss, onlyPublic);
+        return methods == null ? null : methods.toArray(new Method[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Method> getInstanceMethodListForAnnotation(Object obj, Class<? extends Annotation> aClss,
+                                                                  boolean onlyPublic) {
         if (obj == null || aClss == null) {
             return null; // Quietly fail
         }
 
-        return fetchAnnotatedMethods(obj.getClass(), aClss, ANNOTATED_INSTANCE_METHOD_CACHE, false, onlyPublic);
+        return (List<Method>) MEMBERS.get(obj.getClass()).annotated(aClss, onlyPublic ? PUBLIC : 0);
     }
 
 
@@ -64,98 +101,62 @@ public final class ReflectionHelper {
     ////////////////////////////////////////////////////////////////////////////
     // Private caches and helping methods
 
-    private final static Map<Class<?>, Map<Class<? extends Annotation>, Set<Method>>> ANNOTATED_STATIC_METHOD_CACHE = new HashMap<>();
-    private final static Map<Class<?>, Map<Class<? extends Annotation>, Set<Method>>> ANNOTATED_INSTANCE_METHOD_CACHE = new HashMap<>();
-    private final static Map<Class<?>, Map<Class<? extends Annotation>, Set<Field>>> ANNOTATED_STATIC_FIELD_CACHE = new HashMap<>();
-    private final static Map<Class<?>, Map<Class<? extends Annotation>, Set<Field>>> ANNOTATED_INSTANCE_FIELD_CACHE = new HashMap<>();
-
-    private static Field[] fetchAnnotatedFields(Class<?> clss, Class<? extends Annotation> aClss, Map<Class<?>,
-            Map<Class<? extends Annotation>, Set<Field>>> cache, boolean isStatic, boolean onlyPublic) {
-        Map<Class<? extends Annotation>, Set<Field>> fieldCache = cache.computeIfAbsent(clss, k -> new HashMap<>());
-        Set<Field> fieldSet = new HashSet<>();
-        boolean isFilled = false;
-
-        // Never send an anonymous class to the cache!
-        if (!clss.isAnonymousClass()) {
-            if (fieldCache.containsKey(aClss)) {
-                fieldSet = fieldCache.get(aClss);
-                isFilled = true;
-            }
-            else {
-                fieldCache.put(aClss, fieldSet);
-            }
+    // Bits of a query; together they index the results cached for an annotation
+    private final static int PUBLIC = 1, STATIC = 2, FIELDS = 4, QUERY_KINDS = 8;
+
+    private final static ClassValue<ClassMembers> MEMBERS = new ClassValue<ClassMembers>() {
+        @Override
+        protected ClassMembers computeValue(Class<?> type) {
+            return new ClassMembers(type);
         }
+    };
 
-        if (!isFilled) {
-            Field lastField = null;
-            try {
-                for (Field f : clss.getDeclaredFields()) {
-                    lastField = f;
-                    f.setAccessible(true);
-                    int mod = f.getModifiers();
-                    boolean fStatic = Modifier.isStatic(f.getModifiers());
-                    if ((!isStatic || fStatic) &&
-                            (!onlyPublic || Modifier.isPublic(mod)) &&
-                            f.isAnnotationPresent(aClss)) {
-                        fieldSet.add(f);
-                    }
-                    f.setAccessible(false);
-                }
-            }
-            // If an exception is encountered, don't cache the improperly-populated set and quietly fail
-            catch (Exception e) {
-                if (lastField != null) {
-                    lastField.setAccessible(false);
-                }
-                fieldCache.remove(aClss);
-                return null;
-            }
+    private final static class ClassMembers {
+        private final Class<?> clss;
+        private final ConcurrentHashMap<Class<? extends Annotation>, AtomicReferenceArray<List<? extends Member>>> results =
+                new ConcurrentHashMap<>();
+
+        ClassMembers(Class<?> clss) {
+            this.clss = clss;
         }
-        return fieldSet.toArray(new Field[0]);
-    }
 
-    private static Method[] fetchAnnotatedMethods(Class<?> clss, Class<? extends Annotation> aClss,
-            Map<Class<?>, Map<Class<? extends Annotation>, Set<Method>>> cache, boolean isStatic, boolean onlyPublic) {
-        Map<Class<? extends Annotation>, Set<Method>> methodCache = cache.computeIfAbsent(clss, k -> new HashMap<>());
-        Set<Method> methodSet = new HashSet<>();
-        boolean isFilled = false;
-
-        // Never send an anonymous object to the cache!
-        if (!clss.isAnonymousClass()) {
-            if (methodCache.containsKey(aClss)) {
-                methodSet = methodCache.get(aClss);
-                isFilled = true;
+        /**
+         * Returns the members with an annotation that match a query, or null if the class could not be scanned.
+         */
+        List<? extends Member> annotated(Class<? extends Annotation> aClss, int query) {
+            AtomicReferenceArray<List<? extends Member>> byQuery = results.get(aClss);
+            if (byQuery == null) {
+                byQuery = results.computeIfAbsent(aClss, k -> new AtomicReferenceArray<>(QUERY_KINDS));
             }
-            else {
-                methodCache.put(aClss, methodSet);
+            List<? extends Member> found = byQuery.get(query);
+            if (found == null) {
+                found = scan(aClss, query);
+                // If an exception is encountered, don't cache the result and quietly fail
+                if (found == null) {
+                    return null;
+                }
+                byQuery.compareAndSet(query, null, found);
             }
+            return found;
         }
 
-        if (!isFilled) {
-            Method lastMethod = null;
+        private List<? extends Member> scan(Class<? extends Annotation> aClss, int query) {
             try {
-                for (Method m : clss.getMethods()) {
-                    lastMethod = m;
-                    m.setAccessible(true);
-                    int mod = m.getModifiers();
-                    boolean mStatic = Modifier.isStatic(m.getModifiers());
-                    if ((!isStatic || mStatic) &&
-                            (!onlyPublic || Modifier.isPublic(mod)) &&
-                            m.isAnnotationPresent(aClss)) {
-                        methodSet.add(m);
+                Member[] candidates = (query & FIELDS) != 0 ? clss.getDeclaredFields() : clss.getMethods();
+                List<Member> found = new ArrayList<>(1);
+                for (Member member : candidates) {
+                    int mod = member.getModifiers();
+                    if (((query & STATIC) == 0 || Modifier.isStatic(mod)) &&
+                            ((query & PUBLIC) == 0 || Modifier.isPublic(mod)) &&
+                            ((AnnotatedElement) member).isAnnotationPresent(aClss)) {
+                        found.add(member);
                     }
-                    m.setAccessible(false);
                 }
+                return found.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(found);
             }
-            // If an exception is encountered, don't cache the improperly-populated set and quietly fail
             catch (Exception e) {
-                if (lastMethod != null) {
-                    lastMethod.setAccessible(false);
-                }
-                methodCache.remove(aClss);
                 return null;
             }
         }
-        return methodSet.toArray(new Method[0]);
     }
 }